@@ -17,6 +17,7 @@ import android.os.Vibrator;
 import android.text.TextUtils;
 import android.util.Size;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,6 +34,7 @@ import com.uuzuche.lib_zxing.R;
 import com.uuzuche.lib_zxing.camera.CameraManager;
 import com.uuzuche.lib_zxing.camera.CameraSizes;
 import com.uuzuche.lib_zxing.decoding.CaptureActivityHandler;
+import com.uuzuche.lib_zxing.decoding.DecodeConfig;
 import com.uuzuche.lib_zxing.view.AutoFitSurfaceView;
 import com.uuzuche.lib_zxing.view.ViewfinderView;
 import com.uuzuche.lib_zxing.decoding.InactivityTimer;
@@ -58,6 +60,8 @@ public class CaptureFragment extends Fragment {
     private AutoFitSurfaceView surfaceView;//输出到屏幕的预览
     private SurfaceHolder surfaceHolder;
     private CodeUtils.AnalyzeCallback analyzeCallback;
+    private CodeUtils.ContinuousAnalyzeCallback continuousAnalyzeCallback;
+    private DecodeConfig decodeConfig = new DecodeConfig();
 
     private static final int REQUEST_CAMERA_PERMISSION = 1;
     private static final String FRAGMENT_DIALOG = "dialog";
@@ -66,6 +70,8 @@ public class CaptureFragment extends Fragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         CameraManager.init(getActivity().getApplication());
+        // Open the camera while the layout is inflated, openDriver() attaches the preview later.
+        CameraManager.get().prewarm();
         inactivityTimer = new InactivityTimer(getActivity());
     }
 
@@ -86,6 +92,20 @@ public class CaptureFragment extends Fragment {
         viewfinderView = view.findViewById(R.id.viewfinder_view);
         surfaceView = view.findViewById(R.id.preview_view);
         surfaceHolder = surfaceView.getHolder();
+        viewfinderView.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                if (!decodeConfig.isTapToFocus()) {
+                    return false;
+                }
+                if (event.getActionMasked() == MotionEvent.ACTION_UP) {
+                    // The viewfinder draws the framing rect in the same coordinates.
+                    CameraManager.get().focusAt((int) event.getX(), (int) event.getY());
+                    v.performClick();
+                }
+                return true;
+            }
+        });
         final View finalView = view;
         surfaceHolder.addCallback(new SurfaceHolder.Callback() {
             @Override
@@ -108,6 +128,10 @@ public class CaptureFragment extends Fragment {
 
             @Override
             public void surfaceDestroyed(SurfaceHolder surfaceHolder) {
+                // A suspended session cannot outlive the surface it draws to.
+                if (CameraManager.get().isSuspended()) {
+                    CameraManager.get().closeDriver();
+                }
             }
         });
         return view;
@@ -125,6 +149,10 @@ public class CaptureFragment extends Fragment {
         }
         initBeepSound();
         vibrate = true;
+        if (CameraManager.get().resumeDriver() && handler == null) {
+            handler = new CaptureActivityHandler(this, decodeFormats, characterSet, viewfinderView,
+                    decodeConfig);
+        }
     }
 
     @Override
@@ -134,7 +162,7 @@ public class CaptureFragment extends Fragment {
             handler.quitSynchronously();
             handler = null;
         }
-        CameraManager.get().closeDriver();
+        CameraManager.get().suspendDriver(decodeConfig.getPauseGracePeriodMillis());
     }
 
     @Override
@@ -164,17 +192,39 @@ public class CaptureFragment extends Fragment {
         }
     }
 
+    /**
+     * Handle the codes of one frame in continuous mode. The scan keeps running.
+     *
+     * @param results Every code found in the frame.
+     */
+    public void handleMultipleDecode(Result[] results) {
+        inactivityTimer.onActivity();
+        if (continuousAnalyzeCallback != null) {
+            continuousAnalyzeCallback.onAnalyzeResults(results);
+        }
+    }
+
+    /**
+     * @return Codes reported per second in continuous mode, 0 while the camera is closed.
+     */
+    public double getCodesPerSecond() {
+        return handler == null ? 0 : handler.getCodesPerSecond();
+    }
+
     private void initCamera(AutoFitSurfaceView surfaceView) {
         if (ActivityCompat.checkSelfPermission(getActivity(), Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
             requestCameraPermission();
             return;
         }
+        // Sizes the camera's image queue, so it must be set before the driver opens.
+        CameraManager.get().setZeroCopyEnabled(decodeConfig.isZeroCopyEnabled());
         CameraManager.get().openDriver(surfaceView);
         if (callBack != null) {
             callBack.callBack(null);
         }
         if (handler == null) {
-            handler = new CaptureActivityHandler(this, decodeFormats, characterSet, viewfinderView);
+            handler = new CaptureActivityHandler(this, decodeFormats, characterSet, viewfinderView,
+                    decodeConfig);
         }
     }
 
@@ -241,6 +291,28 @@ public class CaptureFragment extends Fragment {
         this.analyzeCallback = analyzeCallback;
     }
 
+    public CodeUtils.ContinuousAnalyzeCallback getContinuousAnalyzeCallback() {
+        return continuousAnalyzeCallback;
+    }
+
+    /**
+     * Set the callback of the continuous mode, see {@link DecodeConfig#setContinuousScan}.
+     */
+    public void setContinuousAnalyzeCallback(CodeUtils.ContinuousAnalyzeCallback continuousAnalyzeCallback) {
+        this.continuousAnalyzeCallback = continuousAnalyzeCallback;
+    }
+
+    public DecodeConfig getDecodeConfig() {
+        return decodeConfig;
+    }
+
+    /**
+     * Set the decode pipeline configuration. Takes effect the next time the camera is opened.
+     */
+    public void setDecodeConfig(@NonNull DecodeConfig decodeConfig) {
+        this.decodeConfig = decodeConfig;
+    }
+
     @Nullable
     CameraInitCallBack callBack;
 
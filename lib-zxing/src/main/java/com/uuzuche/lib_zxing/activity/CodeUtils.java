@@ -183,6 +183,18 @@ public class CodeUtils {
         public void onAnalyzeFailed();
     }
 
+    /**
+     * 连续扫码结果，每帧识别到的所有条码
+     */
+    public interface ContinuousAnalyzeCallback {
+
+        /**
+         * Called on the main thread for every frame with at least one code. The same code is
+         * reported again for each frame it stays in view.
+         */
+        public void onAnalyzeResults(Result[] results);
+    }
+
 
     /**
      * 为CaptureFragment设置layout参数
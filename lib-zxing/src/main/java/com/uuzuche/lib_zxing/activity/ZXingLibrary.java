@@ -4,6 +4,7 @@ import android.content.Context;
 import android.util.DisplayMetrics;
 
 import com.uuzuche.lib_zxing.DisplayUtil;
+import com.uuzuche.lib_zxing.camera.CameraManager;
 
 /**
  * Created by aaron on 16/9/7.
@@ -23,4 +24,19 @@ public class ZXingLibrary {
         DisplayUtil.screenWidthDip = DisplayUtil.px2dip(context, dm.widthPixels);
         DisplayUtil.screenHightDip = DisplayUtil.px2dip(context, dm.heightPixels);
     }
+
+    /**
+     * Starts opening the camera ahead of the scan screen, e.g. when the button that leads to it
+     * is tapped, so the preview shows sooner. The camera is closed again if no scan screen uses
+     * it within a few seconds. Needs the camera permission, does nothing without it.
+     * <p>
+     * 预热相机，缩短扫码界面出现预览的时间
+     */
+    public static void prewarmCamera(Context context) {
+        if (context == null) {
+            return;
+        }
+        CameraManager.init(context.getApplicationContext());
+        CameraManager.get().prewarm();
+    }
 }
@@ -0,0 +1,91 @@
+package com.uuzuche.lib_zxing.camera;
+
+/**
+ * Picks the size of the frames that are decoded, independently of the preview shown on screen.
+ * A sharp 1080p preview does not need 1080p frames: the decoder only reads the framing rect,
+ * and only needs a few pixels per module there. The smallest camera size is chosen whose
+ * framing rect still spans enough pixels for the densest code expected, among the sizes with
+ * the aspect ratio of the preview so the framing rect maps onto the same scene.
+ * <p>
+ * Sizes are {width, height} pairs in sensor orientation, as listed by the camera's
+ * {@code StreamConfigurationMap}. Kept free of Android classes so it can be tested on the JVM.
+ * <p>
+ * 选择解码用的图像尺寸，与预览尺寸分开
+ */
+public final class AnalysisSizeSelector {
+
+    /**
+     * A version 10 QR code, about the densest code scanned off labels and screens.
+     */
+    static final int DEFAULT_CODE_MODULES = 57;
+    static final float DEFAULT_MIN_MODULE_PIXELS = 2f;
+    /**
+     * The code is expected to fill at least this much of the framing rect.
+     */
+    static final float DEFAULT_CODE_FILL = 0.5f;
+    private static final float ASPECT_TOLERANCE = 0.01f;
+
+    private final int requiredPixels;
+
+    public AnalysisSizeSelector() {
+        this(DEFAULT_CODE_MODULES, DEFAULT_MIN_MODULE_PIXELS, DEFAULT_CODE_FILL);
+    }
+
+    /**
+     * @param codeModules     Modules across the densest code to decode.
+     * @param minModulePixels Pixels each module needs at least.
+     * @param codeFill        Smallest share of the framing rect the code covers, in (0, 1].
+     */
+    public AnalysisSizeSelector(int codeModules, float minModulePixels, float codeFill) {
+        if (codeModules < 1 || minModulePixels <= 0 || codeFill <= 0 || codeFill > 1) {
+            throw new IllegalArgumentException("Bad code geometry: " + codeModules + " modules, "
+                    + minModulePixels + " px, fill " + codeFill);
+        }
+        requiredPixels = (int) Math.ceil(codeModules * minModulePixels / codeFill);
+    }
+
+    /**
+     * @return Pixels the framing rect has to span on each side.
+     */
+    public int getRequiredPixels() {
+        return requiredPixels;
+    }
+
+    /**
+     * @param sizes         Output sizes of the camera for the decoded format.
+     * @param previewWidth  Width of the preview, in sensor orientation.
+     * @param previewHeight Height of the preview, in sensor orientation.
+     * @param coverageX     Share of the frame width the framing rect spans, in sensor
+     *                      orientation. 1 if the whole frame is decoded.
+     * @param coverageY     Share of the frame height the framing rect spans.
+     * @return {width, height} of the frames to decode. Never larger than the preview, and the
+     * preview size itself if no other size has its aspect ratio.
+     */
+    public int[] select(int[][] sizes, int previewWidth, int previewHeight,
+                        float coverageX, float coverageY) {
+        float aspect = (float) previewWidth / previewHeight;
+        int[] smallest = null;
+        int[] largest = null;
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            if (width > previewWidth || height > previewHeight
+                    || Math.abs((float) width / height - aspect) > aspect * ASPECT_TOLERANCE) {
+                continue;
+            }
+            if (largest == null || area(size) > area(largest)) {
+                largest = size;
+            }
+            if (width * coverageX >= requiredPixels && height * coverageY >= requiredPixels
+                    && (smallest == null || area(size) < area(smallest))) {
+                smallest = size;
+            }
+        }
+        int[] chosen = smallest != null ? smallest : largest;
+        return chosen != null ? new int[]{chosen[0], chosen[1]} : new int[]{previewWidth, previewHeight};
+    }
+
+    private static long area(int[] size) {
+        return (long) size[0] * size[1];
+    }
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.graphics.ImageFormat;
 import android.graphics.Point;
 import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.params.StreamConfigurationMap;
 import android.util.Log;
 import android.util.Size;
 import android.view.Display;
@@ -40,6 +41,7 @@ final class CameraConfigurationManager {
     private final Context context;
     private Point screenResolution;//屏幕分辨率
     private Point cameraResolution;
+    private Point analysisResolution;
     private int previewFormat = ImageFormat.YUV_420_888;
 
     CameraConfigurationManager(Context context) {
@@ -66,12 +68,62 @@ final class CameraConfigurationManager {
                 cameraResolution = screenResolution;
             }
         }
+        analysisResolution = selectAnalysisResolution(cameraCharacteristics);
+        Log.d(TAG, "Preview resolution: " + cameraResolution
+                + ", analysis resolution: " + analysisResolution);
     }
 
+    /**
+     * Picks the size of the decoded frames from the sizes the camera offers for
+     * {@link #previewFormat}, see {@link AnalysisSizeSelector}.
+     */
+    private Point selectAnalysisResolution(CameraCharacteristics cameraCharacteristics) {
+        StreamConfigurationMap map =
+                cameraCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        Size[] outputSizes = map == null ? null : map.getOutputSizes(previewFormat);
+        if (outputSizes == null || outputSizes.length == 0) {
+            return cameraResolution;
+        }
+        int[][] sizes = new int[outputSizes.length][];
+        for (int i = 0; i < outputSizes.length; i++) {
+            sizes[i] = new int[]{outputSizes[i].getWidth(), outputSizes[i].getHeight()};
+        }
+        // Frames are landscape and the UI is portrait: the framing rect width runs along the
+        // frame height.
+        boolean portrait = screenResolution.x < screenResolution.y;
+        int screenAlongX = portrait ? screenResolution.y : screenResolution.x;
+        int screenAlongY = portrait ? screenResolution.x : screenResolution.y;
+        int frameAlongX = portrait ? CameraManager.FRAME_HEIGHT : CameraManager.FRAME_WIDTH;
+        int frameAlongY = portrait ? CameraManager.FRAME_WIDTH : CameraManager.FRAME_HEIGHT;
+        float coverageX = coverage(frameAlongX, screenAlongX);
+        float coverageY = coverage(frameAlongY, screenAlongY);
+        int[] size = new AnalysisSizeSelector().select(sizes, cameraResolution.x,
+                cameraResolution.y, coverageX, coverageY);
+        return new Point(size[0], size[1]);
+    }
+
+    /**
+     * @return The share of the screen the framing rect spans, 1 while it is not laid out yet.
+     */
+    private static float coverage(int frame, int screen) {
+        return frame <= 0 || screen <= 0 ? 1f : Math.min(1f, (float) frame / screen);
+    }
+
+    /**
+     * @return The size of the preview shown on screen, in sensor orientation.
+     */
     Point getCameraResolution() {
         return cameraResolution;
     }
 
+    /**
+     * @return The size of the frames that are decoded, in sensor orientation. At most the
+     * preview size, with its aspect ratio.
+     */
+    Point getAnalysisResolution() {
+        return analysisResolution;
+    }
+
     Point getScreenResolution() {
         return screenResolution;
     }
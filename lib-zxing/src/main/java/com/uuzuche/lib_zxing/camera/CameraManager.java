@@ -17,7 +17,11 @@
 package com.uuzuche.lib_zxing.camera;
 
 import android.annotation.SuppressLint;
+import android.Manifest;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.graphics.ImageFormat;
 import android.graphics.PixelFormat;
 import android.graphics.Point;
@@ -27,23 +31,28 @@ import android.hardware.camera2.CameraCaptureSession;
 import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.MeteringRectangle;
 import android.media.Image;
 import android.media.ImageReader;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 
+import com.google.zxing.LuminanceSource;
+import com.uuzuche.lib_zxing.decoding.FrameScheduler;
 import com.uuzuche.lib_zxing.view.AutoFitSurfaceView;
 
-import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This object wraps the Camera service object and expects to be the only one talking to it. The
@@ -58,6 +67,34 @@ public final class CameraManager {
     public static int FRAME_HEIGHT = -1;
     public static int FRAME_MARGINTOP = -1;
 
+    /**
+     * Clockwise rotation from the sensor orientation to the portrait UI the framing rect is
+     * laid out in.
+     */
+    private static final int FRAME_ROTATION = 90;
+    /**
+     * How long focus stays on a tapped point before it follows the framing rect again.
+     */
+    private static final long TAP_FOCUS_HOLD_MS = 3000;
+
+    /**
+     * At most one frame is in flight per decode worker, so this comfortably covers the pool.
+     */
+    private static final int FRAME_POOL_CAPACITY = 8;
+
+    /**
+     * Images the reader can hand out at once in zero-copy mode. Every image a decoder is still
+     * reading stays acquired, so this has to cover the decode workers plus the image being
+     * delivered.
+     */
+    private static final int ZERO_COPY_MAX_IMAGES = 5;
+
+    /**
+     * How long a camera opened by {@link #prewarm()} waits for a preview before it is closed
+     * again.
+     */
+    private static final long PREWARM_TIMEOUT_MS = 5000;
+
     private static CameraManager cameraManager;
 
     static final int SDK_INT; // Later we can use Build.VERSION.SDK_INT
@@ -91,6 +128,54 @@ public final class CameraManager {
     private ImageReader mImageReader;//预览回调的接收者，可以间接地获取预览帧数据，类似Camera的AutoFocusCallback:
     private boolean mFlashSupported;//当前摄像头是否支持闪关灯
     private AutoFitSurfaceView mSurfaceView;
+    private final FrameBufferPool framePool = new FrameBufferPool(FRAME_POOL_CAPACITY);
+    private boolean cropFramesToFramingRect = true;
+    private boolean zeroCopyEnabled;
+    /**
+     * Whether focus and exposure are metered on the framing rect rather than the whole frame.
+     */
+    private volatile boolean meteringEnabled;
+    private int maxAfRegions;
+    private int maxAeRegions;
+    private Rect activeArray;
+    private final MeteringStats meteringStats = new MeteringStats();
+    private int maxImages = 1;
+    /**
+     * Images currently lent to decoders in zero-copy mode.
+     */
+    private final AtomicInteger heldImages = new AtomicInteger();
+    private volatile FrameScheduler frameScheduler;
+    private final DuplicateFrameFilter duplicateFilter = new DuplicateFrameFilter();
+    private final FrameRing frameRing = new FrameRing();
+    /**
+     * Whether openCamera() was called and the device not closed since. Camera thread only.
+     */
+    private volatile boolean opening;
+    /**
+     * Whether {@link #openDriver} attached the preview surfaces. Camera thread only, where the
+     * open callback runs too, so whichever comes second starts the session.
+     */
+    private boolean previewAttached;
+    /**
+     * Guards starting and stopping the camera thread, and {@link #previewRequested}.
+     */
+    private final Object threadLock = new Object();
+    /**
+     * Whether {@link #openDriver} was called since the last {@link #closeDriver}, so a
+     * prewarmed camera is in use even if {@link #attachPreview} has not run yet.
+     */
+    private boolean previewRequested;
+    private boolean prewarmed;
+    private long openRequestNanos;
+    private long openDriverNanos;
+    private volatile long timeToFirstFrameNanos;
+    private volatile boolean awaitingFirstFrame;
+    /**
+     * Whether the session is kept open with its repeating request stopped, see
+     * {@link #suspendDriver}. Written on the main thread only.
+     */
+    private volatile boolean suspended;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     /**
      * A {@link Semaphore} to prevent the app from exiting before closing the camera.
      * 用来防止程序在关闭摄像头之前退出
@@ -126,6 +211,7 @@ public final class CameraManager {
         } catch (CameraAccessException e) {
             e.printStackTrace();
         }
+        context.getApplicationContext().registerComponentCallbacks(trimCallbacks);
     }
 
     /**
@@ -136,37 +222,162 @@ public final class CameraManager {
             initialized = true;
             configManager.initFromCameraParameters(mCameraCharacteristics);
         }
-        Point cameraResolution = configManager.getCameraResolution();
-        mImageReader = ImageReader.newInstance(cameraResolution.x,cameraResolution.y,
-                configManager.getPreviewFormat(),1);//ImageFormat.YUV_420_888
+        //解码用的尺寸与预览尺寸分开选择，预览保持清晰，解码只用足够的分辨率
+        Point analysisResolution = configManager.getAnalysisResolution();
+        //零拷贝模式下解码线程持有Image，需要更多的缓冲
+        maxImages = zeroCopyEnabled ? ZERO_COPY_MAX_IMAGES : 1;
+        mImageReader = ImageReader.newInstance(analysisResolution.x,analysisResolution.y,
+                configManager.getPreviewFormat(),maxImages);//ImageFormat.YUV_420_888
         mImageReader.setOnImageAvailableListener(
                 mOnImageAvailableListener, mBackgroundHandler);
         //检查是否支持闪光灯
         Boolean available = mCameraCharacteristics.get(CameraCharacteristics.FLASH_INFO_AVAILABLE);
         mFlashSupported = available == null ? false : available;
+        //对焦、测光区域使用传感器坐标
+        Integer maxAf = mCameraCharacteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AF);
+        Integer maxAe = mCameraCharacteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AE);
+        maxAfRegions = maxAf == null ? 0 : maxAf;
+        maxAeRegions = maxAe == null ? 0 : maxAe;
+        activeArray = mCameraCharacteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
     }
 
     /**
-     * Opens the camera driver and initializes the hardware parameters.
-     *
+     * Starts opening the camera before the preview is laid out, e.g. while the capture layout
+     * is inflated, so the device is ready by the time {@link #openDriver} attaches the
+     * surfaces. Does nothing without the camera permission or if the camera is already open.
+     * A camera nobody attaches a preview to within a few seconds is closed again.
+     * <p>
+     * 预热相机：在布局加载的同时打开相机
+     */
+    public void prewarm() {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            Log.d(TAG, "No camera permission, not prewarming");
+            return;
+        }
+        synchronized (threadLock) {
+            if (previewRequested) {
+                return;
+            }
+            if (mBackgroundThread == null) {
+                startBackgroundThread();
+            }
+            mBackgroundHandler.post(prewarmCamera);
+        }
+    }
+
+    private final Runnable prewarmCamera = new Runnable() {
+        @Override
+        public void run() {
+            // Never block the camera thread here, attachPreview will open the camera if this
+            // cannot.
+            if (mCameraDevice != null || opening || !mCameraOpenCloseLock.tryAcquire()) {
+                return;
+            }
+            prewarmed = true;
+            openCamera();
+            mBackgroundHandler.postDelayed(closeUnusedCamera, PREWARM_TIMEOUT_MS);
+        }
+    };
+
+    /**
+     * Opens the camera driver and initializes the hardware parameters. If {@link #prewarm()}
+     * already opened the camera, only the outputs are set up and attached to it.
      */
-    @SuppressLint("MissingPermission")
     public void openDriver(AutoFitSurfaceView surfaceView) {
-        startBackgroundThread();
-        mSurfaceView = surfaceView;
-        setUpCameraOutputs();
-        try {
-            if (!mCameraOpenCloseLock.tryAcquire(2500, TimeUnit.MILLISECONDS)) {
-                throw new RuntimeException("Time out waiting to lock camera opening.");
+        openDriverNanos = System.nanoTime();
+        awaitingFirstFrame = true;
+        synchronized (threadLock) {
+            previewRequested = true;
+            if (mBackgroundThread == null) {
+                startBackgroundThread();
+            }
+            mSurfaceView = surfaceView;
+            setUpCameraOutputs();
+            // Whether the prewarmed camera can be reused is only known on the camera thread.
+            mBackgroundHandler.post(attachPreview);
+        }
+    }
+
+    private final Runnable attachPreview = new Runnable() {
+        @Override
+        public void run() {
+            previewAttached = true;
+            mBackgroundHandler.removeCallbacks(closeUnusedCamera);
+            if (mCameraDevice != null) {
+                if (mCaptureSession == null) {
+                    createCameraPreviewSession();
+                }
+                return;
+            }
+            if (opening) {
+                // onOpened() creates the session.
+                return;
+            }
+            // Not prewarmed, or the prewarmed camera was closed again.
+            if (!mCameraOpenCloseLock.tryAcquire()) {
+                Log.w(TAG, "Camera is being closed, not opening it");
+                return;
             }
-            mCameraManager.openCamera(Integer.toString(mCameraId),mStateCallback,mBackgroundHandler);
+            prewarmed = false;
+            openCamera();
+        }
+    };
+
+    /**
+     * Opens the camera, with {@link #mCameraOpenCloseLock} held until it is open. Camera thread
+     * only.
+     */
+    @SuppressLint("MissingPermission")
+    private void openCamera() {
+        try {
+            openRequestNanos = System.nanoTime();
+            mCameraManager.openCamera(Integer.toString(mCameraId), mStateCallback, mBackgroundHandler);
+            opening = true;
         } catch (CameraAccessException e) {
+            mCameraOpenCloseLock.release();
             e.printStackTrace();
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Interrupted while trying to lock camera opening.", e);
         }
     }
 
+    /**
+     * Closes a prewarmed camera that no preview was attached to, and stops the camera thread
+     * since nothing is going to use it.
+     */
+    private final Runnable closeUnusedCamera = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (threadLock) {
+                if (previewRequested || mBackgroundThread == null) {
+                    return;
+                }
+                if (mCameraDevice == null && opening) {
+                    // Still opening, look again later.
+                    mBackgroundHandler.postDelayed(this, PREWARM_TIMEOUT_MS);
+                    return;
+                }
+                if (!mCameraOpenCloseLock.tryAcquire()) {
+                    // closeDriver() is closing it.
+                    return;
+                }
+                try {
+                    Log.d(TAG, "Closing prewarmed camera, no preview was attached");
+                    if (mCameraDevice != null) {
+                        mCameraDevice.close();
+                        mCameraDevice = null;
+                    }
+                    opening = false;
+                } finally {
+                    mCameraOpenCloseLock.release();
+                }
+                // Pending messages still run, the thread ends after this one.
+                mBackgroundThread.quitSafely();
+                mBackgroundThread = null;
+                mBackgroundHandler = null;
+            }
+        }
+    };
+
     /**
      *Camera状态回调
      */
@@ -174,10 +385,14 @@ public final class CameraManager {
         @Override
         public void onOpened(@NonNull CameraDevice cameraDevice) {
             mCameraOpenCloseLock.release();
+            Log.d(TAG, "Camera opened in " + (System.nanoTime() - openRequestNanos) / 1000000
+                    + " ms" + (prewarmed ? ", prewarmed" : ""));
             //初始化cameraDevice
             mCameraDevice = cameraDevice;
-            //创建预览会话
-            createCameraPreviewSession();
+            //预览Surface已就绪时才创建预览会话，否则等openDriver()
+            if (previewAttached) {
+                createCameraPreviewSession();
+            }
         }
 
         @Override
@@ -185,6 +400,7 @@ public final class CameraManager {
             mCameraOpenCloseLock.release();
             cameraDevice.close();
             mCameraDevice = null;
+            opening = false;
         }
 
         @Override
@@ -192,6 +408,7 @@ public final class CameraManager {
             mCameraOpenCloseLock.release();
             cameraDevice.close();
             mCameraDevice = null;
+            opening = false;
         }
     };
 
@@ -222,6 +439,8 @@ public final class CameraManager {
 
                                 // 设置连续自动对焦
                                 mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+                                // 对焦、测光区域
+                                setMeteringRegions(meteringEnabled ? framingRectRegions() : null);
                                 if (mFlashSupported) {
                                     mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AE_MODE,
                                             CaptureRequest.CONTROL_AE_MODE_ON_AUTO_FLASH);
@@ -254,37 +473,208 @@ public final class CameraManager {
     private final ImageReader.OnImageAvailableListener mOnImageAvailableListener = new ImageReader.OnImageAvailableListener() {
         @Override
         public void onImageAvailable(ImageReader imageReader) {
+            if (frameRing.shouldHoldBack()) {
+                // Every decoder is busy and the ring is full, leave the image with the camera.
+                return;
+            }
             //接收预览的帧数据
-            Image image = imageReader.acquireNextImage();
+            Image image;
+            try {
+                image = imageReader.acquireNextImage();
+            } catch (IllegalStateException e) {
+                // maxImages are already acquired, wait for a decoder to close one.
+                return;
+            }
             if(image == null){
                 return;
             }
+            frameRing.onFrameProduced();
+            if (awaitingFirstFrame) {
+                awaitingFirstFrame = false;
+                timeToFirstFrameNanos = System.nanoTime() - openDriverNanos;
+                Log.d(TAG, "Time to first frame: " + timeToFirstFrameNanos / 1000000 + " ms"
+                        + (prewarmed ? ", prewarmed" : ""));
+            }
+            FrameScheduler scheduler = frameScheduler;
+            if (scheduler != null) {
+                scheduler.onFrameArrived(System.nanoTime());
+            }
+            if (!hasDecodeRequest() && !frameRing.accepts()) {
+                // Every decoder is busy and the ring won't keep it, don't bother copying the frame.
+                image.close();
+                return;
+            }
             int width = image.getWidth();
             int height = image.getHeight();
-            Image.Plane[] planes = image.getPlanes();
-            ByteBuffer buffer;
-            byte[] bytes = null;
-            if (image.getFormat()==ImageFormat.YUV_420_888) {
-                buffer = planes[0].getBuffer();
-                if (bytes == null) {
-                    bytes = new byte[buffer.capacity() * 3 / 2];
+            PreviewFrame frame = null;
+            boolean filterDuplicates = duplicateFilter.isEnabled();
+            if (image.getFormat()==ImageFormat.YUV_420_888 && canLendImage()) {
+                //零拷贝：解码线程直接读取Image的Y平面，解码结束后关闭Image
+                Image.Plane luma = image.getPlanes()[0];
+                heldImages.incrementAndGet();
+                frame = new PreviewFrame(image, heldImages, luma.getBuffer(),
+                        luma.getRowStride(), luma.getPixelStride());
+                frame.width = width;
+                frame.height = height;
+                frame.imageWidth = width;
+                frame.imageHeight = height;
+                if (filterDuplicates) {
+                    Rect crop = cropFramesToFramingRect
+                            ? getFramingRectInSensor(width, height)
+                            : new Rect(0, 0, width, height);
+                    FrameExtractor.sampleSignature(frame.plane, frame.rowStride, frame.pixelStride,
+                            crop.left, crop.top, crop.width(), crop.height(), frame.signature);
+                    if (duplicateFilter.isDuplicate(frame.signature)) {
+                        frame.release();
+                        return;
+                    }
                 }
-                int len = buffer.capacity();
-                buffer.get(bytes, 0, len);
-                buffer = planes[2].getBuffer();//plane[0] + plane[2] =NV21;; plane[0] + plane[1] =NV12
-                buffer.get(bytes, len, buffer.capacity());
+                deliverFrame(frame);
+                return;
+            }
+            if (image.getFormat()==ImageFormat.YUV_420_888) {
+                //只拷贝Y分量，解码不需要色度数据
+                Image.Plane luma = image.getPlanes()[0];
+                Rect crop = cropFramesToFramingRect
+                        ? getFramingRectInSensor(width, height)
+                        : new Rect(0, 0, width, height);
+                //从缓冲池借用数组，解码结束后由解码线程归还
+                frame = framePool.acquire(crop.width() * crop.height());
+                FrameExtractor.extractLuma(luma.getBuffer(), luma.getRowStride(),
+                        luma.getPixelStride(), crop.left, crop.top, crop.width(), crop.height(),
+                        frame.data, filterDuplicates ? frame.signature : null);
+                frame.width = crop.width();
+                frame.height = crop.height();
+                frame.left = crop.left;
+                frame.top = crop.top;
+                frame.imageWidth = width;
+                frame.imageHeight = height;
             }
             image.close();
-            if(previewHandler != null){
-                if(bytes != null){
-                    Message message = previewHandler.obtainMessage(previewMessage, width,
-                            height, bytes);
-                    message.sendToTarget();
-                    previewHandler = null;
-                }
-            }else {
-                Log.d(TAG, "Got preview callback, but no handler for it");
+            if (frame != null && filterDuplicates && duplicateFilter.isDuplicate(frame.signature)) {
+                //与上一帧解码失败的画面相同，跳过解码，请求留给下一帧
+                frame.release();
+                frame = null;
             }
+            if(frame != null){
+                deliverFrame(frame);
+            }
+            // Otherwise an unsupported format or a duplicate frame, the request waits for the
+            // next frame.
+        }
+    };
+
+    /**
+     * Takes the image the camera was held back with under {@link FrameRing.DropPolicy#BLOCK},
+     * once a decoder has made room in the ring.
+     */
+    private final Runnable takeHeldBackImage = new Runnable() {
+        @Override
+        public void run() {
+            ImageReader reader = mImageReader;
+            if (reader != null) {
+                mOnImageAvailableListener.onImageAvailable(reader);
+            }
+        }
+    };
+
+    /**
+     * Pauses the preview but keeps the camera and its session open for {@code graceMillis}, so
+     * that a quick return, e.g. from a permission dialog or the notification shade, resumes it
+     * at once with {@link #resumeDriver()}. The camera is closed when the grace period ends,
+     * or earlier when the app is hidden or memory runs low.
+     * <p>
+     * 暂停预览但在宽限期内保持相机打开
+     *
+     * @param graceMillis 0 to close the camera right away.
+     * @return true if the camera was kept open.
+     */
+    public boolean suspendDriver(long graceMillis) {
+        if (graceMillis <= 0 || suspended || mCaptureSession == null) {
+            closeDriver();
+            return false;
+        }
+        try {
+            mCaptureSession.stopRepeating();
+        } catch (CameraAccessException e) {
+            closeDriver();
+            return false;
+        } catch (IllegalStateException e) {
+            // The session was closed underneath us.
+            closeDriver();
+            return false;
+        }
+        // Frames kept for the decoders are stale by the time the preview comes back.
+        cancelDecodeRequests();
+        suspended = true;
+        mainHandler.postDelayed(closeSuspendedDriver, graceMillis);
+        Log.d(TAG, "Camera suspended for up to " + graceMillis + " ms");
+        return true;
+    }
+
+    /**
+     * Restarts the preview of a camera kept open by {@link #suspendDriver}.
+     *
+     * @return false if the camera is not suspended, e.g. because the grace period ended, in
+     * which case it has to be opened again with {@link #openDriver}.
+     */
+    public boolean resumeDriver() {
+        if (!suspended) {
+            return false;
+        }
+        mainHandler.removeCallbacks(closeSuspendedDriver);
+        suspended = false;
+        openDriverNanos = System.nanoTime();
+        awaitingFirstFrame = true;
+        try {
+            mCaptureSession.setRepeatingRequest(mPreviewRequest, null, mBackgroundHandler);
+        } catch (CameraAccessException e) {
+            closeDriver();
+            return false;
+        } catch (IllegalStateException e) {
+            closeDriver();
+            return false;
+        }
+        Log.d(TAG, "Camera resumed");
+        return true;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    private final Runnable closeSuspendedDriver = new Runnable() {
+        @Override
+        public void run() {
+            if (suspended) {
+                Log.d(TAG, "Grace period over, closing camera");
+                closeDriver();
+            }
+        }
+    };
+
+    /**
+     * Gives up a suspended camera as soon as the app is hidden or memory is short, rather than
+     * at the end of the grace period.
+     */
+    private final ComponentCallbacks2 trimCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (suspended && level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                Log.d(TAG, "Trim memory level " + level + ", closing suspended camera");
+                closeDriver();
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            if (suspended) {
+                closeDriver();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
         }
     };
 
@@ -292,6 +682,8 @@ public final class CameraManager {
      * 关闭相机
      */
     public void closeDriver() {
+        mainHandler.removeCallbacks(closeSuspendedDriver);
+        suspended = false;
         try {
             mCameraOpenCloseLock.acquire();
             if (null != mCaptureSession) {
@@ -302,11 +694,17 @@ public final class CameraManager {
                 mCameraDevice.close();
                 mCameraDevice = null;
             }
+            // Frames in the ring may still hold images of the reader.
+            frameRing.clear();
             if (null != mImageReader) {
                 mImageReader.close();
                 mImageReader = null;
             }
             stopBackgroundThread();
+            opening = false;
+            previewAttached = false;
+            awaitingFirstFrame = false;
+            Log.d(TAG, "Closed camera, " + framePool + ", " + frameRing);
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while trying to lock camera closing.", e);
         } finally {
@@ -314,6 +712,154 @@ public final class CameraManager {
         }
     }
 
+    /**
+     * Meters autofocus and auto-exposure on the framing rect instead of the whole frame, so
+     * they settle on the code rather than on the background. Only applies to cameras that
+     * support metering regions. Defaults to false.
+     * <p>
+     * 对焦和测光区域限定在扫描框内
+     */
+    public void setMeteringEnabled(boolean enabled) {
+        if (meteringEnabled == enabled) {
+            return;
+        }
+        meteringEnabled = enabled;
+        if (mBackgroundHandler != null) {
+            mBackgroundHandler.removeCallbacks(restoreFramingRectMetering);
+            mBackgroundHandler.post(restoreFramingRectMetering);
+        }
+    }
+
+    public boolean isMeteringEnabled() {
+        return meteringEnabled;
+    }
+
+    /**
+     * @return Success rate and time to decode of scans with and without
+     * {@link #setMeteringEnabled metering}, across sessions.
+     */
+    public MeteringStats getMeteringStats() {
+        return meteringStats;
+    }
+
+    /**
+     * Focuses and meters on a point of the screen, e.g. where the user tapped, then follows the
+     * framing rect, or the whole frame, again after a few seconds.
+     * <p>
+     * 点击对焦
+     *
+     * @param x Horizontal position in window coordinates, like {@link #getFramingRect}.
+     * @param y Vertical position in window coordinates.
+     */
+    public void focusAt(final int x, final int y) {
+        if (mBackgroundHandler == null) {
+            return;
+        }
+        mBackgroundHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mCaptureSession == null || maxAfRegions <= 0 || activeArray == null) {
+                    return;
+                }
+                int half = Math.min(FRAME_WIDTH, FRAME_HEIGHT) / 4;
+                Rect tap = new Rect(x - half, y - half, x + half, y + half);
+                Point resolution = configManager.getAnalysisResolution();
+                MeteringRectangle[] regions = toMeteringRectangles(
+                        toSensor(toPreview(tap), resolution.x, resolution.y));
+                mBackgroundHandler.removeCallbacks(restoreFramingRectMetering);
+                try {
+                    // Hold focus on the tapped point: auto mode, then a single scan.
+                    mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE,
+                            CaptureRequest.CONTROL_AF_MODE_AUTO);
+                    setMeteringRegions(regions);
+                    mPreviewRequest = mPreviewRequestBuilder.build();
+                    mCaptureSession.setRepeatingRequest(mPreviewRequest, null, mBackgroundHandler);
+                    mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER,
+                            CaptureRequest.CONTROL_AF_TRIGGER_START);
+                    mCaptureSession.capture(mPreviewRequestBuilder.build(), null, mBackgroundHandler);
+                } catch (CameraAccessException e) {
+                    e.printStackTrace();
+                } catch (IllegalStateException e) {
+                    // The session was closed in the meantime.
+                    return;
+                } finally {
+                    mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER,
+                            CaptureRequest.CONTROL_AF_TRIGGER_IDLE);
+                }
+                mBackgroundHandler.postDelayed(restoreFramingRectMetering, TAP_FOCUS_HOLD_MS);
+            }
+        });
+    }
+
+    /**
+     * Returns to continuous focus, metered as {@link #setMeteringEnabled} says. Camera thread
+     * only.
+     */
+    private final Runnable restoreFramingRectMetering = new Runnable() {
+        @Override
+        public void run() {
+            if (mCaptureSession == null || mPreviewRequestBuilder == null) {
+                return;
+            }
+            try {
+                // Release a focus locked by a tap.
+                mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER,
+                        CaptureRequest.CONTROL_AF_TRIGGER_CANCEL);
+                mCaptureSession.capture(mPreviewRequestBuilder.build(), null, mBackgroundHandler);
+                mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER,
+                        CaptureRequest.CONTROL_AF_TRIGGER_IDLE);
+                mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE,
+                        CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+                setMeteringRegions(meteringEnabled ? framingRectRegions() : null);
+                mPreviewRequest = mPreviewRequestBuilder.build();
+                if (!suspended) {
+                    mCaptureSession.setRepeatingRequest(mPreviewRequest, null, mBackgroundHandler);
+                }
+            } catch (CameraAccessException e) {
+                e.printStackTrace();
+            } catch (IllegalStateException e) {
+                // The session was closed in the meantime.
+            }
+        }
+    };
+
+    /**
+     * Sets the AF and AE regions of the preview request, null for the camera's default of
+     * metering the whole frame.
+     */
+    private void setMeteringRegions(MeteringRectangle[] regions) {
+        if (maxAfRegions > 0) {
+            mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AF_REGIONS, regions);
+        }
+        if (maxAeRegions > 0) {
+            mPreviewRequestBuilder.set(CaptureRequest.CONTROL_AE_REGIONS, regions);
+        }
+    }
+
+    /**
+     * @return The framing rect as metering regions, or null if the camera has no active array
+     * size.
+     */
+    private MeteringRectangle[] framingRectRegions() {
+        if (activeArray == null) {
+            return null;
+        }
+        Point resolution = configManager.getAnalysisResolution();
+        return toMeteringRectangles(getFramingRectInSensor(resolution.x, resolution.y));
+    }
+
+    /**
+     * @param frameRect A rectangle of the decoded frames, in sensor orientation.
+     */
+    private MeteringRectangle[] toMeteringRectangles(Rect frameRect) {
+        Point resolution = configManager.getAnalysisResolution();
+        int[] region = MeteringRegions.toActiveArray(
+                new int[]{frameRect.left, frameRect.top, frameRect.right, frameRect.bottom},
+                resolution.x, resolution.y, activeArray.width(), activeArray.height());
+        return new MeteringRectangle[]{new MeteringRectangle(region[0], region[1],
+                region[2] - region[0], region[3] - region[1], MeteringRectangle.METERING_WEIGHT_MAX)};
+    }
+
     /**
      * 开启闪光灯
      */
@@ -359,27 +905,133 @@ public final class CameraManager {
      * Stops the background thread and its {@link Handler}.
      */
     private void stopBackgroundThread() {
-        mBackgroundThread.quitSafely();
+        HandlerThread thread;
+        synchronized (threadLock) {
+            previewRequested = false;
+            thread = mBackgroundThread;
+        }
+        if (thread == null) {
+            // Never started, or stopped with an unused prewarmed camera.
+            return;
+        }
+        // Joined outside the lock, the thread may be waiting for it.
+        thread.quitSafely();
         try {
-            mBackgroundThread.join();
-            mBackgroundThread = null;
-            mBackgroundHandler = null;
+            thread.join();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        synchronized (threadLock) {
+            if (mBackgroundThread == thread) {
+                mBackgroundThread = null;
+                mBackgroundHandler = null;
+            }
+        }
     }
 
-    private Handler previewHandler;
-    private int previewMessage;
+    /**
+     * Pending decode requests, one per idle decode worker. Each preview frame is handed to the
+     * oldest request, so frames are dealt to the workers in turn. Also guards handing frames
+     * between the requests and the {@link FrameRing}, so no frame waits in the ring while a
+     * request waits here.
+     */
+    private final ArrayDeque<Message> decodeRequests = new ArrayDeque<Message>();
+
     /**
      * 解码请求
+     * <p>
+     * Answered at once with the oldest frame of the {@link FrameRing} if it holds one, otherwise
+     * with the next preview frame.
      *
      * @param handler The handler to send the message to.
      * @param message The what field of the message to be sent.
      */
     public void requestDecode(Handler handler, int message) {
-        this.previewHandler = handler;
-        this.previewMessage = message;
+        PreviewFrame frame;
+        synchronized (decodeRequests) {
+            frame = frameRing.poll();
+            if (frame == null) {
+                decodeRequests.offer(Message.obtain(handler, message));
+                return;
+            }
+        }
+        if (!handler.sendMessage(Message.obtain(handler, message, frame))) {
+            // The worker quit, nobody else will release the frame.
+            frame.release();
+        }
+        if (frameRing.getPolicy() == FrameRing.DropPolicy.BLOCK) {
+            Handler background = mBackgroundHandler;
+            if (background != null) {
+                background.post(takeHeldBackImage);
+            }
+        }
+    }
+
+    /**
+     * Hands a frame to the oldest decode request, or keeps it in the ring if every decoder is
+     * busy.
+     */
+    private void deliverFrame(PreviewFrame frame) {
+        Message message;
+        synchronized (decodeRequests) {
+            message = decodeRequests.poll();
+            if (message == null) {
+                frameRing.offer(frame);
+                return;
+            }
+        }
+        frameRing.onFrameDecoded();
+        message.obj = frame;
+        if (!message.getTarget().sendMessage(message)) {
+            // The worker quit after asking, e.g. while the camera was being suspended. A lent
+            // image would otherwise stay held while the reader lives on.
+            frame.release();
+        }
+    }
+
+    /**
+     * Sets the scheduler that is told about every camera frame, so it can measure the frame
+     * rate. Null to stop reporting.
+     */
+    public void setFrameScheduler(FrameScheduler scheduler) {
+        this.frameScheduler = scheduler;
+    }
+
+    /**
+     * @return The filter that skips frames identical to the last one that failed to decode.
+     * Disabled until configured, see {@code DecodeConfig#setDuplicateFrameFilter}.
+     */
+    public DuplicateFrameFilter getDuplicateFrameFilter() {
+        return duplicateFilter;
+    }
+
+    /**
+     * @return The ring that keeps frames while every decoder is busy, and counts what happened
+     * to each camera frame. Holds no frames until configured, see
+     * {@code DecodeConfig#setFrameRingCapacity}.
+     */
+    public FrameRing getFrameRing() {
+        return frameRing;
+    }
+
+    /**
+     * Drops every pending decode request and the frames waiting in the ring, e.g. once a
+     * barcode has been found.
+     */
+    public void cancelDecodeRequests() {
+        synchronized (decodeRequests) {
+            Message message;
+            while ((message = decodeRequests.poll()) != null) {
+                message.recycle();
+            }
+            frameRing.clear();
+        }
+    }
+
+    private boolean hasDecodeRequest() {
+        synchronized (decodeRequests) {
+            return !decodeRequests.isEmpty();
+        }
     }
 
     /**
@@ -415,34 +1067,138 @@ public final class CameraManager {
      */
     public Rect getFramingRectInPreview() {
         if (framingRectInPreview == null) {
-            Rect rect = new Rect(getFramingRect());
-            Point cameraResolution = configManager.getCameraResolution();
-            Point screenResolution = configManager.getScreenResolution();
-            //modify here
+            framingRectInPreview = toPreview(getFramingRect());
+        }
+        return framingRectInPreview;
+    }
+
+    /**
+     * Maps a rectangle in window coordinates to the decoded frames, before rotation.
+     */
+    private Rect toPreview(Rect screenRect) {
+        Rect rect = new Rect(screenRect);
+        // In terms of the decoded frames, which may be smaller than the preview.
+        Point cameraResolution = configManager.getAnalysisResolution();
+        Point screenResolution = configManager.getScreenResolution();
+        //modify here
 //      rect.left = rect.left * cameraResolution.x / screenResolution.x;
 //      rect.right = rect.right * cameraResolution.x / screenResolution.x;
 //      rect.top = rect.top * cameraResolution.y / screenResolution.y;
 //      rect.bottom = rect.bottom * cameraResolution.y / screenResolution.y;
-            rect.left = rect.left * cameraResolution.y / screenResolution.x;
-            rect.right = rect.right * cameraResolution.y / screenResolution.x;
-            rect.top = rect.top * cameraResolution.x / screenResolution.y;
-            rect.bottom = rect.bottom * cameraResolution.x / screenResolution.y;
-            framingRectInPreview = rect;
+        rect.left = rect.left * cameraResolution.y / screenResolution.x;
+        rect.right = rect.right * cameraResolution.y / screenResolution.x;
+        rect.top = rect.top * cameraResolution.x / screenResolution.y;
+        rect.bottom = rect.bottom * cameraResolution.x / screenResolution.y;
+        return rect;
+    }
+
+    /**
+     * Like {@link #getFramingRectInPreview} but in the orientation of the camera image, clipped
+     * to the image bounds.
+     *
+     * @param imageWidth  Width of the camera image.
+     * @param imageHeight Height of the camera image.
+     */
+    public Rect getFramingRectInSensor(int imageWidth, int imageHeight) {
+        return toSensor(getFramingRectInPreview(), imageWidth, imageHeight);
+    }
+
+    /**
+     * Rotates a rectangle of {@link #toPreview preview} coordinates into the orientation of the
+     * camera image, clipped to the image bounds.
+     */
+    private static Rect toSensor(Rect rect, int imageWidth, int imageHeight) {
+        Rect sensor;
+        switch (FRAME_ROTATION) {
+            case 90:
+                sensor = new Rect(rect.top, imageHeight - rect.right, rect.bottom, imageHeight - rect.left);
+                break;
+            case 180:
+                sensor = new Rect(imageWidth - rect.right, imageHeight - rect.bottom,
+                        imageWidth - rect.left, imageHeight - rect.top);
+                break;
+            case 270:
+                sensor = new Rect(imageWidth - rect.bottom, rect.left, imageWidth - rect.top, rect.right);
+                break;
+            default:
+                sensor = new Rect(rect);
+                break;
         }
-        return framingRectInPreview;
+        sensor.left = Math.max(0, sensor.left);
+        sensor.top = Math.max(0, sensor.top);
+        sensor.right = Math.min(imageWidth, sensor.right);
+        sensor.bottom = Math.min(imageHeight, sensor.bottom);
+        return sensor;
+    }
+
+    /**
+     * @return Time from the last {@link #openDriver} call to the first camera frame, -1 until
+     * a frame arrived. Shorter when the camera was {@link #prewarm() prewarmed}.
+     */
+    public long getTimeToFirstFrameMillis() {
+        return awaitingFirstFrame || timeToFirstFrameNanos == 0 ? -1 : timeToFirstFrameNanos / 1000000;
+    }
+
+    /**
+     * Whether preview frames are cropped to the framing rect while they are copied out of the
+     * camera image. Cropping saves copying pixels the decoder never reads; turn it off if the
+     * whole frame is needed. Defaults to true.
+     */
+    public void setCropFramesToFramingRect(boolean crop) {
+        this.cropFramesToFramingRect = crop;
+    }
+
+    /**
+     * Whether decoders read preview frames straight from the camera image instead of a copy.
+     * The image then stays open until its decode has finished. When too many images are held
+     * by slow decoders, frames fall back to being copied so the camera never stalls. Must be
+     * set before {@link #openDriver}. Defaults to false.
+     */
+    public void setZeroCopyEnabled(boolean enabled) {
+        this.zeroCopyEnabled = enabled;
+    }
+
+    public boolean isZeroCopyEnabled() {
+        return zeroCopyEnabled;
+    }
+
+    /**
+     * Keeps two images free: one for the frame being delivered and one so that
+     * acquireNextImage() can still run while decoders hold the rest.
+     */
+    private boolean canLendImage() {
+        return zeroCopyEnabled && heldImages.get() < maxImages - 2;
+    }
+
+    /**
+     * Builds the luminance source for a frame handed to a decoder, cropped to the framing rect
+     * and rotated to the portrait preview.
+     */
+    public LuminanceSource buildLuminanceSource(PreviewFrame frame) {
+        Rect rect = getFramingRectInSensor(frame.imageWidth, frame.imageHeight);
+        if (frame.isZeroCopy()) {
+            return new ImagePlaneLuminanceSource(frame.plane, frame.rowStride, frame.pixelStride,
+                    rect.left, rect.top, rect.width(), rect.height(), FRAME_ROTATION);
+        }
+        return new RotatedLuminanceSource(frame.data, frame.width, frame.height,
+                rect.left - frame.left, rect.top - frame.top, rect.width(), rect.height(),
+                FRAME_ROTATION);
     }
 
     /**
      * A factory method to build the appropriate LuminanceSource object based on the format
      * of the preview buffers, as described by Camera.Parameters.
+     * <p>
+     * The frame is left in sensor orientation. The returned source maps the framing rect, which
+     * is in portrait preview coordinates, back onto the frame instead of rotating a copy of it.
      *
      * @param data   A preview frame.
      * @param width  The width of the image.
      * @param height The height of the image.
-     * @return A PlanarYUVLuminanceSource instance.
+     * @return A RotatedLuminanceSource instance.
      */
-    public PlanarYUVLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {
-        Rect rect = getFramingRectInPreview();
+    public RotatedLuminanceSource buildLuminanceSource(byte[] data, int width, int height) {
+        Rect rect = getFramingRectInSensor(width, height);
         int previewFormat = configManager.getPreviewFormat();
         switch (previewFormat) {
             // This is the standard Android format which all devices are REQUIRED to support.
@@ -455,11 +1211,18 @@ public final class CameraManager {
             default:
                 // The Samsung Moment incorrectly uses this variant instead of the 'sp' version.
                 // Fortunately, it too has all the Y data up front, so we can read it.
-                    return new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top,
-                            rect.width(), rect.height());
+                    return new RotatedLuminanceSource(data, width, height, rect.left, rect.top,
+                            rect.width(), rect.height(), FRAME_ROTATION);
         }
     }
 
+    /**
+     * @return The pool preview frames are copied into, e.g. to read its hit and miss counts.
+     */
+    public FrameBufferPool getFramePool() {
+        return framePool;
+    }
+
     public Context getContext() {
         return context;
     }
@@ -0,0 +1,108 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.Arrays;
+
+/**
+ * Shrinks another luminance source by an integer factor, averaging each factor x factor block
+ * into one pixel. Rows are computed from the wrapped source when they are requested, so nothing
+ * is allocated up front. Partial blocks at the right and bottom edges are dropped.
+ * <p>
+ * 按整数倍缩小的亮度源，用于快速的低分辨率解码
+ */
+public final class DownscaledLuminanceSource extends LuminanceSource {
+
+    private final LuminanceSource source;
+    private final int factor;
+
+    public DownscaledLuminanceSource(LuminanceSource source, int factor) {
+        super(source.getWidth() / Math.max(1, factor), source.getHeight() / Math.max(1, factor));
+        if (factor < 1) {
+            throw new IllegalArgumentException("factor must be >= 1: " + factor);
+        }
+        if (getWidth() == 0 || getHeight() == 0) {
+            throw new IllegalArgumentException("Source is smaller than one block: " + factor);
+        }
+        this.source = source;
+        this.factor = factor;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        downscaleRow(y, row, 0, new int[width], new byte[source.getWidth()]);
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] matrix = new byte[width * height];
+        int[] sums = new int[width];
+        byte[] sourceRow = new byte[source.getWidth()];
+        for (int y = 0; y < height; y++) {
+            sourceRow = downscaleRow(y, matrix, y * width, sums, sourceRow);
+        }
+        return matrix;
+    }
+
+    /**
+     * Averages the source rows of output row {@code y} into {@code out} at {@code offset}.
+     *
+     * @return The source row buffer, which the source may have replaced.
+     */
+    private byte[] downscaleRow(int y, byte[] out, int offset, int[] sums, byte[] sourceRow) {
+        int width = getWidth();
+        int factor = this.factor;
+        Arrays.fill(sums, 0, width, 0);
+        for (int dy = 0; dy < factor; dy++) {
+            sourceRow = source.getRow(y * factor + dy, sourceRow);
+            int sourceOffset = 0;
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int dx = 0; dx < factor; dx++) {
+                    sum += sourceRow[sourceOffset++] & 0xff;
+                }
+                sums[x] += sum;
+            }
+        }
+        int area = factor * factor;
+        for (int x = 0; x < width; x++) {
+            out[offset + x] = (byte) (sums[x] / area);
+        }
+        return sourceRow;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return source.isCropSupported();
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new DownscaledLuminanceSource(
+                source.crop(left * factor, top * factor, width * factor, height * factor), factor);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return source.isRotateSupported();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new DownscaledLuminanceSource(source.rotateCounterClockwise(), factor);
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+}
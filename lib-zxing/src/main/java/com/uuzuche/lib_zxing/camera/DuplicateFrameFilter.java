@@ -0,0 +1,110 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.util.Locale;
+
+/**
+ * Skips frames that look the same as the last frame that failed to decode, e.g. while the phone
+ * lies still pointed at an empty surface. A frame is a duplicate when no cell of its
+ * {@link FrameSignature} differs from the failed frame by more than the tolerance. Every
+ * {@link #MAX_CONSECUTIVE_SKIPS}-th duplicate is decoded anyway, since a scene can become
+ * readable without changing its signature, for example when autofocus settles.
+ * <p>
+ * 重复帧过滤：画面与上一帧失败的帧相同时跳过解码
+ */
+public final class DuplicateFrameFilter {
+
+    static final int MAX_CONSECUTIVE_SKIPS = 15;
+
+    private final FrameSignature reference = new FrameSignature();
+    private boolean enabled;
+    private int tolerance = 4;
+    private int consecutiveSkips;
+    private long checked;
+    private long skipped;
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Defaults to false.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            reset();
+        }
+    }
+
+    public synchronized int getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Sets how sensitive the filter is. Higher tolerances skip more frames but may also skip a
+     * code that moved in only slightly.
+     *
+     * @param tolerance largest cell difference, in grey levels, for a frame to count as a
+     *                  duplicate. Defaults to 4.
+     */
+    public synchronized void setTolerance(int tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance must be >= 0: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return true if the frame should be skipped.
+     */
+    public synchronized boolean isDuplicate(FrameSignature signature) {
+        if (!enabled) {
+            return false;
+        }
+        checked++;
+        if (consecutiveSkips < MAX_CONSECUTIVE_SKIPS && reference.distance(signature) <= tolerance) {
+            consecutiveSkips++;
+            skipped++;
+            return true;
+        }
+        consecutiveSkips = 0;
+        return false;
+    }
+
+    /**
+     * Remembers a frame that was decoded without a result.
+     */
+    public synchronized void onDecodeFailed(FrameSignature signature) {
+        if (enabled && signature != null) {
+            reference.copyFrom(signature);
+        }
+    }
+
+    /**
+     * Forgets the failed frame, e.g. after a successful scan.
+     */
+    public synchronized void reset() {
+        reference.reset(0, 0);
+        consecutiveSkips = 0;
+    }
+
+    public synchronized long getCheckedCount() {
+        return checked;
+    }
+
+    /**
+     * @return Frames that were not decoded because they were duplicates.
+     */
+    public synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DuplicateFrameFilter{" +
+                "checked=" + checked +
+                ", skipped=" + skipped +
+                ", saved=" + String.format(Locale.US, "%.1f%%", checked == 0 ? 0 : 100.0 * skipped / checked) +
+                '}';
+    }
+}
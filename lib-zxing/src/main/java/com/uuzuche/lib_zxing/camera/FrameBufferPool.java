@@ -0,0 +1,70 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded pool of {@link PreviewFrame} buffers. Frames are borrowed when a camera image is
+ * copied and returned after the decode, so a steady-state scan allocates no frame buffers.
+ * <p>
+ * 帧缓冲池，避免每一帧都分配新的数组
+ */
+public final class FrameBufferPool {
+
+    private final int capacity;
+    private final ArrayDeque<PreviewFrame> free;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity How many idle frames are kept at most. Frames released beyond that are
+     *                 left to the garbage collector.
+     */
+    public FrameBufferPool(int capacity) {
+        this.capacity = capacity;
+        this.free = new ArrayDeque<PreviewFrame>(capacity);
+    }
+
+    /**
+     * Borrows a frame whose buffer holds at least {@code size} bytes.
+     */
+    public synchronized PreviewFrame acquire(int size) {
+        PreviewFrame frame = free.poll();
+        if (frame != null && frame.data.length >= size) {
+            hits++;
+            return frame;
+        }
+        // Empty pool, or the preview size changed: the old buffer is too small to reuse.
+        misses++;
+        return new PreviewFrame(this, size);
+    }
+
+    synchronized void release(PreviewFrame frame) {
+        if (free.size() < capacity) {
+            free.offer(frame);
+        }
+    }
+
+    /**
+     * Drops every idle buffer, e.g. when the camera is closed.
+     */
+    public synchronized void clear() {
+        free.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FrameBufferPool{" +
+                "idle=" + free.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+}
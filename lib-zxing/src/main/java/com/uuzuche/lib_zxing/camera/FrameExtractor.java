@@ -0,0 +1,122 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the luma plane of a camera image into a tightly packed array. Decoding only reads the
+ * Y channel, so chroma is never touched, and rows are copied one by one so that padding at the
+ * end of each row ({@code rowStride > width}) is skipped instead of being read as pixels.
+ * <p>
+ * 从Image.Plane中提取Y分量，考虑rowStride/pixelStride，可在拷贝时直接裁剪
+ */
+public final class FrameExtractor {
+
+    private FrameExtractor() {
+    }
+
+    /**
+     * Copies the rectangle ({@code left}, {@code top}, {@code width}, {@code height}) of a plane
+     * into {@code out}, row after row with a stride of {@code width}.
+     *
+     * @param plane       The plane buffer, e.g. {@code Image.Plane.getBuffer()}. Its position
+     *                    is changed by the copy.
+     * @param rowStride   Bytes between the starts of two rows in {@code plane}.
+     * @param pixelStride Bytes between two pixels of a row in {@code plane}.
+     * @param out         Destination, at least {@code width * height} bytes long.
+     */
+    public static void extractLuma(ByteBuffer plane, int rowStride, int pixelStride,
+                                   int left, int top, int width, int height, byte[] out) {
+        extractLuma(plane, rowStride, pixelStride, left, top, width, height, out, null);
+    }
+
+    /**
+     * Like {@link #extractLuma(ByteBuffer, int, int, int, int, int, int, byte[])}, and samples
+     * each row into {@code signature} while it is still in cache.
+     *
+     * @param signature Reset and finished by the copy, null to skip it.
+     */
+    public static void extractLuma(ByteBuffer plane, int rowStride, int pixelStride,
+                                   int left, int top, int width, int height, byte[] out,
+                                   FrameSignature signature) {
+        if (left < 0 || top < 0 || width < 0 || height < 0) {
+            throw new IllegalArgumentException("Negative crop rectangle");
+        }
+        if (out.length < width * height) {
+            throw new IllegalArgumentException("Output holds " + out.length + " bytes, need "
+                    + width * height);
+        }
+        if (signature != null) {
+            signature.reset(width, height);
+        }
+        if (height == 0) {
+            finish(signature);
+            return;
+        }
+        // The last row of a plane is usually not padded, so only require what we actually read.
+        int lastByte = (top + height - 1) * rowStride + (left + width - 1) * pixelStride;
+        if (lastByte >= plane.limit()) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within the plane.");
+        }
+
+        if (pixelStride == 1) {
+            if (rowStride == width && left == 0) {
+                // Unpadded plane, full rows: one bulk copy.
+                plane.position(top * rowStride);
+                plane.get(out, 0, width * height);
+                if (signature != null) {
+                    for (int y = 0; y < height; y += FrameSignature.SAMPLE_STEP) {
+                        signature.addRow(out, y * width, y);
+                    }
+                }
+                finish(signature);
+                return;
+            }
+            int outputOffset = 0;
+            for (int y = 0; y < height; y++) {
+                plane.position((top + y) * rowStride + left);
+                plane.get(out, outputOffset, width);
+                if (signature != null) {
+                    signature.addRow(out, outputOffset, y);
+                }
+                outputOffset += width;
+            }
+            finish(signature);
+            return;
+        }
+
+        // Interleaved samples, pick every pixelStride-th byte.
+        int outputOffset = 0;
+        for (int y = 0; y < height; y++) {
+            int rowOffset = outputOffset;
+            int inputOffset = (top + y) * rowStride + left * pixelStride;
+            for (int x = 0; x < width; x++) {
+                out[outputOffset++] = plane.get(inputOffset);
+                inputOffset += pixelStride;
+            }
+            if (signature != null) {
+                signature.addRow(out, rowOffset, y);
+            }
+        }
+        finish(signature);
+    }
+
+    /**
+     * Samples the rectangle of a plane into {@code signature} without copying it, for frames
+     * that are decoded straight from the camera image.
+     */
+    public static void sampleSignature(ByteBuffer plane, int rowStride, int pixelStride,
+                                       int left, int top, int width, int height,
+                                       FrameSignature signature) {
+        signature.reset(width, height);
+        for (int y = 0; y < height; y += FrameSignature.SAMPLE_STEP) {
+            signature.addRow(plane, (top + y) * rowStride + left * pixelStride, pixelStride, y);
+        }
+        signature.finish();
+    }
+
+    private static void finish(FrameSignature signature) {
+        if (signature != null) {
+            signature.finish();
+        }
+    }
+}
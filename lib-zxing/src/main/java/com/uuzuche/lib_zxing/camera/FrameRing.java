@@ -0,0 +1,196 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.util.ArrayDeque;
+
+/**
+ * Holds the last few preview frames that arrived while every decode worker was busy, so a
+ * worker that finishes picks up a frame at once instead of waiting for the camera. What happens
+ * when the ring is full is up to the {@link DropPolicy}. With a capacity of 0, the default,
+ * frames that find no idle worker are dropped as before.
+ * <p>
+ * The counters cover every camera frame, ring or not, which helps sizing it: frames produced,
+ * dropped for lack of a worker and handed to a worker. Frames skipped by the
+ * {@link DuplicateFrameFilter} are counted there instead.
+ * <p>
+ * 预览帧环形缓冲，解码线程空闲时直接取帧，避免等待下一帧
+ */
+public final class FrameRing {
+
+    public enum DropPolicy {
+        /**
+         * Drop the oldest frame in the ring for the new one, decoding what is in view now.
+         */
+        NEWEST_WINS,
+        /**
+         * Drop the new frame, keeping the ring as it is.
+         */
+        OLDEST_WINS,
+        /**
+         * Leave the new image queued in the camera's image reader until a worker frees a slot,
+         * so the camera backs off instead of frames being dropped here.
+         */
+        BLOCK
+    }
+
+    private final ArrayDeque<PreviewFrame> frames = new ArrayDeque<PreviewFrame>();
+    private int capacity;
+    private DropPolicy policy = DropPolicy.NEWEST_WINS;
+    private long produced;
+    private long dropped;
+    private long decoded;
+    private long blocked;
+
+    /**
+     * Sets how many frames are kept and what happens when the ring is full. Frames beyond the
+     * new capacity are dropped, oldest first.
+     */
+    public synchronized void configure(int capacity, DropPolicy policy) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0: " + capacity);
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        while (frames.size() > capacity) {
+            drop(frames.poll());
+        }
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized DropPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Asked before an image is taken from the camera.
+     *
+     * @return true if the ring is full under {@link DropPolicy#BLOCK}, so the image should stay
+     * queued in the camera until {@link #poll()} makes room.
+     */
+    public synchronized boolean shouldHoldBack() {
+        if (policy == DropPolicy.BLOCK && capacity > 0 && frames.size() >= capacity) {
+            blocked++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts an image taken from the camera.
+     */
+    public synchronized void onFrameProduced() {
+        produced++;
+    }
+
+    /**
+     * Asked when no worker is idle, before the image is copied.
+     *
+     * @return false if {@link #offer} would drop the frame anyway, so the image can be closed
+     * without copying. The drop is counted.
+     */
+    public synchronized boolean accepts() {
+        if (capacity > 0 && (frames.size() < capacity || policy == DropPolicy.NEWEST_WINS)) {
+            return true;
+        }
+        dropped++;
+        return false;
+    }
+
+    /**
+     * Keeps a frame no worker was idle for. When the ring is full, the oldest frame or
+     * {@code frame} itself is released, depending on the policy.
+     */
+    public synchronized void offer(PreviewFrame frame) {
+        if (frames.size() < capacity) {
+            frames.offer(frame);
+        } else if (capacity > 0 && policy == DropPolicy.NEWEST_WINS) {
+            drop(frames.poll());
+            frames.offer(frame);
+        } else {
+            drop(frame);
+        }
+    }
+
+    /**
+     * @return The oldest frame, counted as decoded, or null if the ring is empty.
+     */
+    public synchronized PreviewFrame poll() {
+        PreviewFrame frame = frames.poll();
+        if (frame != null) {
+            decoded++;
+        }
+        return frame;
+    }
+
+    /**
+     * Counts a frame handed straight to an idle worker.
+     */
+    public synchronized void onFrameDecoded() {
+        decoded++;
+    }
+
+    /**
+     * Releases every frame in the ring, e.g. once a barcode has been found and the frames are
+     * stale.
+     */
+    public synchronized void clear() {
+        PreviewFrame frame;
+        while ((frame = frames.poll()) != null) {
+            drop(frame);
+        }
+    }
+
+    private void drop(PreviewFrame frame) {
+        frame.release();
+        dropped++;
+    }
+
+    public synchronized int size() {
+        return frames.size();
+    }
+
+    /**
+     * @return Images taken from the camera.
+     */
+    public synchronized long getProducedCount() {
+        return produced;
+    }
+
+    /**
+     * @return Frames released without being decoded because no worker was idle.
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return Frames handed to a worker, straight from the camera or from the ring.
+     */
+    public synchronized long getDecodedCount() {
+        return decoded;
+    }
+
+    /**
+     * @return Times an image was left queued in the camera under {@link DropPolicy#BLOCK}.
+     */
+    public synchronized long getBlockedCount() {
+        return blocked;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FrameRing{" +
+                "size=" + frames.size() + "/" + capacity +
+                ", policy=" + policy +
+                ", produced=" + produced +
+                ", dropped=" + dropped +
+                ", decoded=" + decoded +
+                ", blocked=" + blocked +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Copies a crop of a luminance plane rotated clockwise by 0, 90, 180 or 270 degrees, for when a
+ * rotated copy is really needed, such as a thumbnail. Rotating pixel by pixel walks one side of
+ * the copy column-wise, touching a new cache line per pixel. Instead the output is written in
+ * square tiles small enough that the source rows a tile reads stay cached until the tile is
+ * done. Large frames are split into bands of tiles across a {@link ForkJoinPool}.
+ * <p>
+ * 分块并行的图像旋转裁剪工具
+ */
+public final class FrameRotator {
+
+    /**
+     * Side of a tile, in pixels. A tile reads one cache line from each of this many source rows.
+     */
+    static final int TILE = 64;
+    /**
+     * Output size in pixels from which the work is split across the pool, below it the forks
+     * cost more than they save.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 19;
+
+    private FrameRotator() {
+    }
+
+    /**
+     * Rotates a crop into a new array, using the default pool for large crops.
+     *
+     * @see #rotate(byte[], int, int, int, int, int, int, int, byte[], ForkJoinPool)
+     */
+    public static byte[] rotate(byte[] data, int dataWidth, int dataHeight, int left, int top,
+                                int width, int height, int rotation) {
+        byte[] output = new byte[width * height];
+        rotate(data, dataWidth, dataHeight, left, top, width, height, rotation, output,
+                getDefaultPool());
+        return output;
+    }
+
+    /**
+     * @param data       The plane, rows {@code dataWidth} bytes apart.
+     * @param left       Left edge of the crop in plane coordinates.
+     * @param top        Top edge of the crop in plane coordinates.
+     * @param width      Width of the crop in plane coordinates.
+     * @param height     Height of the crop in plane coordinates.
+     * @param rotation   Clockwise rotation applied to the crop: 0, 90, 180 or 270.
+     * @param output     Receives the rotated crop, rows packed. At least {@code width * height}
+     *                   bytes.
+     * @param pool       Splits crops of at least {@link #PARALLEL_THRESHOLD} pixels if it has
+     *                   more than one worker, null to always rotate on the calling thread.
+     */
+    public static void rotate(byte[] data, int dataWidth, int dataHeight, int left, int top,
+                              int width, int height, int rotation, byte[] output, ForkJoinPool pool) {
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        if (output.length < width * height) {
+            throw new IllegalArgumentException("Output too small: " + output.length);
+        }
+        Band band = new Band(data, dataWidth, left, top, width, height, rotation, output,
+                0, outputHeight(width, height, rotation));
+        if (pool != null && pool.getParallelism() > 1 && width * height >= PARALLEL_THRESHOLD) {
+            pool.invoke(band);
+        } else {
+            band.rotate();
+        }
+    }
+
+    static int outputHeight(int width, int height, int rotation) {
+        return rotation == 90 || rotation == 270 ? width : height;
+    }
+
+    /**
+     * @return A pool with one worker per core, created on first use. Its threads are daemons.
+     */
+    public static ForkJoinPool getDefaultPool() {
+        return DefaultPool.POOL;
+    }
+
+    private static final class DefaultPool {
+        // ForkJoinPool.commonPool() needs API 24.
+        static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Rotates output rows {@code [startRow, endRow)}, forking halves while the band is taller
+     * than a tile.
+     */
+    private static final class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] data;
+        private final int dataWidth;
+        private final int left;
+        private final int top;
+        private final int cropWidth;
+        private final int cropHeight;
+        private final int rotation;
+        private final byte[] output;
+        private final int startRow;
+        private final int endRow;
+
+        Band(byte[] data, int dataWidth, int left, int top, int cropWidth, int cropHeight,
+             int rotation, byte[] output, int startRow, int endRow) {
+            this.data = data;
+            this.dataWidth = dataWidth;
+            this.left = left;
+            this.top = top;
+            this.cropWidth = cropWidth;
+            this.cropHeight = cropHeight;
+            this.rotation = rotation;
+            this.output = output;
+            this.startRow = startRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = endRow - startRow;
+            if (rows <= TILE) {
+                rotate();
+                return;
+            }
+            // Split on a tile boundary.
+            int middle = startRow + (rows / 2 + TILE - 1) / TILE * TILE;
+            invokeAll(new Band(data, dataWidth, left, top, cropWidth, cropHeight, rotation,
+                            output, startRow, middle),
+                    new Band(data, dataWidth, left, top, cropWidth, cropHeight, rotation,
+                            output, middle, endRow));
+        }
+
+        void rotate() {
+            if (rotation == 0) {
+                for (int y = startRow; y < endRow; y++) {
+                    System.arraycopy(data, (top + y) * dataWidth + left, output, y * cropWidth,
+                            cropWidth);
+                }
+                return;
+            }
+            if (rotation == 180) {
+                // Rows stay rows, only their order and direction change.
+                for (int y = startRow; y < endRow; y++) {
+                    int inputOffset = (top + cropHeight - 1 - y) * dataWidth + left + cropWidth - 1;
+                    int outputOffset = y * cropWidth;
+                    for (int x = 0; x < cropWidth; x++) {
+                        output[outputOffset + x] = data[inputOffset - x];
+                    }
+                }
+                return;
+            }
+            // 90 and 270 transpose: output rows are crop columns.
+            int outputWidth = cropHeight;
+            for (int tileY = startRow; tileY < endRow; tileY += TILE) {
+                int tileEndY = Math.min(endRow, tileY + TILE);
+                for (int tileX = 0; tileX < outputWidth; tileX += TILE) {
+                    int tileEndX = Math.min(outputWidth, tileX + TILE);
+                    if (rotation == 90) {
+                        // Output (x, y) is crop (y, cropHeight - 1 - x).
+                        for (int y = tileY; y < tileEndY; y++) {
+                            int inputOffset = (top + cropHeight - 1 - tileX) * dataWidth + left + y;
+                            int outputOffset = y * outputWidth;
+                            for (int x = tileX; x < tileEndX; x++, inputOffset -= dataWidth) {
+                                output[outputOffset + x] = data[inputOffset];
+                            }
+                        }
+                    } else {
+                        // Output (x, y) is crop (cropWidth - 1 - y, x).
+                        for (int y = tileY; y < tileEndY; y++) {
+                            int inputOffset = (top + tileX) * dataWidth + left + cropWidth - 1 - y;
+                            int outputOffset = y * outputWidth;
+                            for (int x = tileX; x < tileEndX; x++, inputOffset += dataWidth) {
+                                output[outputOffset + x] = data[inputOffset];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
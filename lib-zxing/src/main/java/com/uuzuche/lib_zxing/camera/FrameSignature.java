@@ -0,0 +1,118 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A coarse fingerprint of a frame: the mean luma of each cell of an 8x8 grid, estimated from
+ * every fourth pixel of every fourth row. Two frames of the same still scene differ in their
+ * cell means by little more than sensor noise, while anything entering the picture, even in a
+ * single cell, shows up as a large difference in that cell.
+ * <p>
+ * 帧签名：8x8分块的平均亮度，用于识别内容未变化的帧
+ */
+public final class FrameSignature {
+
+    static final int GRID = 8;
+    static final int SAMPLE_STEP = 4;
+
+    private final int[] sums = new int[GRID * GRID];
+    private final int[] counts = new int[GRID * GRID];
+    private final int[] means = new int[GRID * GRID];
+    private int width;
+    private int height;
+    private boolean complete;
+
+    /**
+     * Starts a new signature for a frame of the given size.
+     */
+    public void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        Arrays.fill(sums, 0);
+        Arrays.fill(counts, 0);
+        complete = false;
+    }
+
+    /**
+     * @return Whether row {@code y} is sampled at all, so callers can skip the rest.
+     */
+    static boolean isSampled(int y) {
+        return y % SAMPLE_STEP == 0;
+    }
+
+    /**
+     * Samples one packed row.
+     *
+     * @param row    Holds the row starting at {@code offset}, one byte per pixel.
+     * @param y      The row number within the frame.
+     */
+    public void addRow(byte[] row, int offset, int y) {
+        if (!isSampled(y)) {
+            return;
+        }
+        int cellRow = y * GRID / height * GRID;
+        int width = this.width;
+        for (int x = 0; x < width; x += SAMPLE_STEP) {
+            int cell = cellRow + x * GRID / width;
+            sums[cell] += row[offset + x] & 0xff;
+            counts[cell]++;
+        }
+    }
+
+    /**
+     * Samples one row of a plane, e.g. {@code Image.Plane.getBuffer()}.
+     *
+     * @param rowOffset   Index of the first pixel of the row in {@code plane}.
+     * @param pixelStride Bytes between two pixels of the row.
+     * @param y           The row number within the frame.
+     */
+    public void addRow(ByteBuffer plane, int rowOffset, int pixelStride, int y) {
+        if (!isSampled(y)) {
+            return;
+        }
+        int cellRow = y * GRID / height * GRID;
+        int width = this.width;
+        for (int x = 0; x < width; x += SAMPLE_STEP) {
+            int cell = cellRow + x * GRID / width;
+            sums[cell] += plane.get(rowOffset + x * pixelStride) & 0xff;
+            counts[cell]++;
+        }
+    }
+
+    /**
+     * Computes the cell means once every row has been added.
+     */
+    public void finish() {
+        for (int i = 0; i < means.length; i++) {
+            means[i] = counts[i] == 0 ? 0 : sums[i] / counts[i];
+        }
+        complete = true;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The largest difference between the means of matching cells, in grey levels, or
+     * {@link Integer#MAX_VALUE} if the frames cannot be compared.
+     */
+    public int distance(FrameSignature other) {
+        if (!complete || !other.complete || width != other.width || height != other.height) {
+            return Integer.MAX_VALUE;
+        }
+        int max = 0;
+        for (int i = 0; i < means.length; i++) {
+            max = Math.max(max, Math.abs(means[i] - other.means[i]));
+        }
+        return max;
+    }
+
+    public void copyFrom(FrameSignature other) {
+        width = other.width;
+        height = other.height;
+        System.arraycopy(other.means, 0, means, 0, means.length);
+        complete = other.complete;
+    }
+}
@@ -0,0 +1,159 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A rotated, cropped view straight onto the luma plane buffer of a camera image, usually the
+ * direct {@code ByteBuffer} of {@code Image.Plane[0]}. Rows are read from the buffer on demand,
+ * so the frame is never copied into the Java heap as a whole. The image must stay open until the
+ * decode using this source has finished.
+ * <p>
+ * Crop and rotation work like {@link RotatedLuminanceSource}: the crop rectangle is in plane
+ * coordinates and the cropped region is rotated clockwise.
+ */
+public final class ImagePlaneLuminanceSource extends LuminanceSource {
+
+    private final ByteBuffer plane;
+    private final int rowStride;
+    private final int pixelStride;
+    private final int left;
+    private final int top;
+    private final int cropWidth;
+    private final int cropHeight;
+    private final int rotation;
+
+    /**
+     * @param plane       The luma plane. Not modified, the source reads through its own view.
+     * @param rowStride   Bytes between the starts of two rows.
+     * @param pixelStride Bytes between two pixels of a row.
+     * @param left        Left edge of the crop rectangle in plane coordinates.
+     * @param top         Top edge of the crop rectangle in plane coordinates.
+     * @param width       Width of the crop rectangle in plane coordinates.
+     * @param height      Height of the crop rectangle in plane coordinates.
+     * @param rotation    Clockwise rotation applied to the crop: 0, 90, 180 or 270.
+     */
+    public ImagePlaneLuminanceSource(ByteBuffer plane, int rowStride, int pixelStride,
+                                     int left, int top, int width, int height, int rotation) {
+        super(rotation == 90 || rotation == 270 ? height : width,
+                rotation == 90 || rotation == 270 ? width : height);
+
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        if (left < 0 || top < 0 || width <= 0 || height <= 0
+                || (top + height - 1) * rowStride + (left + width - 1) * pixelStride >= plane.limit()) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+
+        // Our own view, so reading never moves the position of the caller's buffer.
+        this.plane = plane.duplicate();
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.left = left;
+        this.top = top;
+        this.cropWidth = width;
+        this.cropHeight = height;
+        this.rotation = rotation;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        ByteBuffer buffer = plane;
+        int offset;
+        int step;
+        switch (rotation) {
+            case 0:
+                offset = (top + y) * rowStride + left * pixelStride;
+                if (pixelStride == 1) {
+                    buffer.position(offset);
+                    buffer.get(row, 0, width);
+                    return row;
+                }
+                step = pixelStride;
+                break;
+            case 90:
+                offset = (top + cropHeight - 1) * rowStride + (left + y) * pixelStride;
+                step = -rowStride;
+                break;
+            case 180:
+                offset = (top + cropHeight - 1 - y) * rowStride + (left + cropWidth - 1) * pixelStride;
+                step = -pixelStride;
+                break;
+            default:
+                offset = top * rowStride + (left + cropWidth - 1 - y) * pixelStride;
+                step = rowStride;
+                break;
+        }
+        for (int x = 0; x < width; x++, offset += step) {
+            row[x] = buffer.get(offset);
+        }
+        return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] matrix = new byte[width * height];
+        if (rotation == 0 && pixelStride == 1) {
+            ByteBuffer buffer = plane;
+            for (int y = 0; y < height; y++) {
+                buffer.position((top + y) * rowStride + left);
+                buffer.get(matrix, y * width, width);
+            }
+            return matrix;
+        }
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            getRow(y, row);
+            System.arraycopy(row, 0, matrix, y * width, width);
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    /**
+     * @param left   Left edge in the rotated coordinates of this source.
+     * @param top    Top edge in the rotated coordinates of this source.
+     * @param width  Width in the rotated coordinates of this source.
+     * @param height Height in the rotated coordinates of this source.
+     */
+    @Override
+    public ImagePlaneLuminanceSource crop(int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight()) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        int[] rect = RotatedLuminanceSource.unrotateRect(rotation, cropWidth, cropHeight,
+                left, top, width, height);
+        return new ImagePlaneLuminanceSource(plane, rowStride, pixelStride,
+                this.left + rect[0], this.top + rect[1], rect[2], rect[3], rotation);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new ImagePlaneLuminanceSource(plane, rowStride, pixelStride, left, top,
+                cropWidth, cropHeight, (rotation + 270) % 360);
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+}
@@ -0,0 +1,101 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Half, quarter, ... resolution versions of a luminance source, each level a 2x2 box filter of
+ * the one above. Levels are built on first use, and every level is computed from the previous
+ * one, so building them all reads the base source only once. Levels smaller than
+ * {@link #MIN_LEVEL_SIZE} in either direction are not offered, they cannot hold a readable code.
+ * <p>
+ * 亮度金字塔：逐级缩小一半，先在低分辨率上解码
+ */
+public final class LuminancePyramid {
+
+    static final int MIN_LEVEL_SIZE = 64;
+
+    private final LuminanceSource[] levels;
+    private byte[] levelData;
+    private int builtLevel;
+
+    /**
+     * @param base       Level 0, full resolution.
+     * @param levelCount Levels wanted, including the base. Fewer are offered if the base is
+     *                   too small.
+     */
+    public LuminancePyramid(LuminanceSource base, int levelCount) {
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("levelCount must be >= 1: " + levelCount);
+        }
+        int available = 1;
+        int width = base.getWidth();
+        int height = base.getHeight();
+        while (available < levelCount && width / 2 >= MIN_LEVEL_SIZE && height / 2 >= MIN_LEVEL_SIZE) {
+            width /= 2;
+            height /= 2;
+            available++;
+        }
+        levels = new LuminanceSource[available];
+        levels[0] = base;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * @param level 0 for full resolution, 1 for half, 2 for a quarter and so on.
+     */
+    public LuminanceSource getLevel(int level) {
+        while (builtLevel < level) {
+            buildNextLevel();
+        }
+        return levels[level];
+    }
+
+    /**
+     * @return The scale of {@code level} relative to the base: 1, 2, 4, ...
+     */
+    public static int getFactor(int level) {
+        return 1 << level;
+    }
+
+    private void buildNextLevel() {
+        LuminanceSource previous = levels[builtLevel];
+        int width = previous.getWidth();
+        int height = previous.getHeight();
+        byte[] data = levelData != null ? levelData : previous.getMatrix();
+        if (builtLevel == 0) {
+            // Keep the matrix we just read, so falling back to full resolution does not read
+            // the base again.
+            levels[0] = new RotatedLuminanceSource(data, width, height, 0, 0, width, height, 0);
+        }
+        levelData = halve(data, width, height);
+        builtLevel++;
+        levels[builtLevel] = new RotatedLuminanceSource(levelData, width / 2, height / 2,
+                0, 0, width / 2, height / 2, 0);
+    }
+
+    /**
+     * Averages each 2x2 block of a {@code width * height} image, dropping an odd last row or
+     * column.
+     */
+    static byte[] halve(byte[] data, int width, int height) {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        byte[] half = new byte[halfWidth * halfHeight];
+        for (int y = 0; y < halfHeight; y++) {
+            int top = 2 * y * width;
+            int bottom = top + width;
+            int outputOffset = y * halfWidth;
+            for (int x = 0; x < halfWidth; x++) {
+                int sum = (data[top] & 0xff) + (data[top + 1] & 0xff)
+                        + (data[bottom] & 0xff) + (data[bottom + 1] & 0xff);
+                half[outputOffset + x] = (byte) ((sum + 2) >> 2);
+                top += 2;
+                bottom += 2;
+            }
+        }
+        return half;
+    }
+}
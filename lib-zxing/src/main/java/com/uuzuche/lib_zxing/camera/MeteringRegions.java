@@ -0,0 +1,110 @@
+package com.uuzuche.lib_zxing.camera;
+
+/**
+ * Maps rectangles of the decoded frames onto the sensor's active pixel array, where the camera
+ * expects autofocus and auto-exposure regions. A stream whose aspect ratio differs from the
+ * active array's sees a centered crop of it, scaled to the stream size, so a frame rectangle is
+ * scaled by the crop and offset by its margin.
+ * <p>
+ * Rectangles are {left, top, right, bottom} in sensor orientation, and results are relative to
+ * the top left corner of the active array. Kept free of Android classes so it can be tested on
+ * the JVM.
+ * <p>
+ * 将解码帧中的区域映射为传感器坐标下的对焦/测光区域
+ */
+public final class MeteringRegions {
+
+    /**
+     * Smallest side of a region, as a share of the shorter side of the visible crop. Some
+     * cameras ignore regions much smaller than this.
+     */
+    static final float MIN_REGION_FRACTION = 0.05f;
+
+    private MeteringRegions() {
+    }
+
+    /**
+     * @param rect        Rectangle in frame coordinates.
+     * @param frameWidth  Width of the frames, in sensor orientation.
+     * @param frameHeight Height of the frames, in sensor orientation.
+     * @param activeWidth Width of the sensor's active array.
+     * @param activeHeight Height of the sensor's active array.
+     * @return The rectangle in active array coordinates, grown to the minimum size around its
+     * center and clipped to the part of the array the frames show.
+     */
+    public static int[] toActiveArray(int[] rect, int frameWidth, int frameHeight,
+                                      int activeWidth, int activeHeight) {
+        if (frameWidth <= 0 || frameHeight <= 0 || activeWidth <= 0 || activeHeight <= 0) {
+            throw new IllegalArgumentException("Bad sizes: frame " + frameWidth + "x" + frameHeight
+                    + ", active array " + activeWidth + "x" + activeHeight);
+        }
+        int[] crop = visibleCrop(frameWidth, frameHeight, activeWidth, activeHeight);
+        int cropWidth = crop[2] - crop[0];
+        int cropHeight = crop[3] - crop[1];
+        float scaleX = (float) cropWidth / frameWidth;
+        float scaleY = (float) cropHeight / frameHeight;
+        float left = crop[0] + rect[0] * scaleX;
+        float top = crop[1] + rect[1] * scaleY;
+        float right = crop[0] + rect[2] * scaleX;
+        float bottom = crop[1] + rect[3] * scaleY;
+
+        int minSide = Math.max(1, Math.round(Math.min(cropWidth, cropHeight) * MIN_REGION_FRACTION));
+        int[] region = new int[4];
+        grow(left, right, minSide, crop[0], crop[2], region, 0);
+        grow(top, bottom, minSide, crop[1], crop[3], region, 1);
+        return region;
+    }
+
+    /**
+     * A square region centered on a point, e.g. where the user tapped.
+     *
+     * @param x    Horizontal position in frame coordinates.
+     * @param y    Vertical position in frame coordinates.
+     * @param side Side of the square in frame pixels.
+     * @see #toActiveArray
+     */
+    public static int[] around(int x, int y, int side, int frameWidth, int frameHeight,
+                               int activeWidth, int activeHeight) {
+        int half = side / 2;
+        return toActiveArray(new int[]{x - half, y - half, x - half + side, y - half + side},
+                frameWidth, frameHeight, activeWidth, activeHeight);
+    }
+
+    /**
+     * @return The centered part of the active array with the aspect ratio of the frames, which
+     * is what the camera scales into them.
+     */
+    static int[] visibleCrop(int frameWidth, int frameHeight, int activeWidth, int activeHeight) {
+        // Compare frameWidth / frameHeight with activeWidth / activeHeight without rounding.
+        long frameCross = (long) frameWidth * activeHeight;
+        long activeCross = (long) activeWidth * frameHeight;
+        if (frameCross < activeCross) {
+            // Narrower frames: the sides are cut.
+            int width = (int) (frameCross / frameHeight);
+            int left = (activeWidth - width) / 2;
+            return new int[]{left, 0, left + width, activeHeight};
+        } else if (frameCross > activeCross) {
+            // Wider frames: top and bottom are cut.
+            int height = (int) (activeCross / frameWidth);
+            int top = (activeHeight - height) / 2;
+            return new int[]{0, top, activeWidth, top + height};
+        }
+        return new int[]{0, 0, activeWidth, activeHeight};
+    }
+
+    /**
+     * Rounds {@code [start, end)} to pixels, grows it to {@code minSide} around its center and
+     * shifts it inside {@code [min, max)}. Writes left/right or top/bottom depending on
+     * {@code axis}.
+     */
+    private static void grow(float start, float end, int minSide, int min, int max,
+                             int[] region, int axis) {
+        int from = Math.round(Math.min(start, end));
+        int to = Math.round(Math.max(start, end));
+        int side = Math.min(max - min, Math.max(minSide, to - from));
+        from = Math.round((from + to - side) / 2f);
+        from = Math.max(min, Math.min(from, max - side));
+        region[axis] = from;
+        region[axis + 2] = from + side;
+    }
+}
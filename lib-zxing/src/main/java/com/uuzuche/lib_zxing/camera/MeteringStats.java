@@ -0,0 +1,80 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.util.Locale;
+
+/**
+ * Compares scans with focus and exposure metered on the framing rect against scans metered on
+ * the whole frame: how many scans end with a code, and how long the successful ones took from
+ * the start of the scan to the result. Kept by {@link CameraManager} so the counts add up
+ * across capture sessions, which is where the setting changes.
+ * <p>
+ * 统计开启/关闭测光区域时的识别成功率和识别耗时
+ */
+public final class MeteringStats {
+
+    private final long[] scans = new long[2];
+    private final long[] decoded = new long[2];
+    private final long[] decodeNanos = new long[2];
+
+    private static int index(boolean metering) {
+        return metering ? 1 : 0;
+    }
+
+    public synchronized void onScanStarted(boolean metering) {
+        scans[index(metering)]++;
+    }
+
+    /**
+     * @param timeToDecodeNanos Time from the start of the scan to its result.
+     */
+    public synchronized void onScanDecoded(boolean metering, long timeToDecodeNanos) {
+        decoded[index(metering)]++;
+        decodeNanos[index(metering)] += timeToDecodeNanos;
+    }
+
+    public synchronized long getScanCount(boolean metering) {
+        return scans[index(metering)];
+    }
+
+    public synchronized long getDecodedCount(boolean metering) {
+        return decoded[index(metering)];
+    }
+
+    /**
+     * @return Share of the scans that found a code, 0 before any scan.
+     */
+    public synchronized double getSuccessRate(boolean metering) {
+        long count = scans[index(metering)];
+        return count == 0 ? 0 : (double) decoded[index(metering)] / count;
+    }
+
+    /**
+     * @return Average time from the start of a scan to its result, over the scans that found a
+     * code. 0 before any.
+     */
+    public synchronized double getAverageTimeToDecodeMillis(boolean metering) {
+        long count = decoded[index(metering)];
+        return count == 0 ? 0 : decodeNanos[index(metering)] / 1e6 / count;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < 2; i++) {
+            scans[i] = 0;
+            decoded[i] = 0;
+            decodeNanos[i] = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MeteringStats{" +
+                "framingRect=" + describe(true) +
+                ", fullFrame=" + describe(false) +
+                '}';
+    }
+
+    private String describe(boolean metering) {
+        return decoded[index(metering)] + "/" + scans[index(metering)] + " scans, "
+                + String.format(Locale.US, "%.1f", getAverageTimeToDecodeMillis(metering)) + " ms";
+    }
+}
@@ -102,6 +102,12 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
         return true;
     }
 
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new PlanarYUVLuminanceSource(yuvData, dataWidth, dataHeight, this.left + left,
+                this.top + top, width, height);
+    }
+
     public int getDataWidth() {
         return dataWidth;
     }
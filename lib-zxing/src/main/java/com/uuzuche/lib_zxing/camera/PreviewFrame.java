@@ -0,0 +1,135 @@
+package com.uuzuche.lib_zxing.camera;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One preview frame handed from the camera to a decoder. The frame is either a copy of the luma
+ * in a buffer that belongs to a {@link FrameBufferPool}, or, in zero-copy mode, the still open
+ * camera image itself. Call {@link #release()} once the frame has been decoded so the buffer can
+ * be reused, or the image closed, for a later frame.
+ * <p>
+ * 预览帧数据，解码完成后需调用release()归还缓冲区
+ */
+public final class PreviewFrame {
+
+    private final FrameBufferPool pool;
+    byte[] data;
+    int width;
+    int height;
+    int left;
+    int top;
+    int imageWidth;
+    int imageHeight;
+    final FrameSignature signature = new FrameSignature();
+
+    private final AutoCloseable image;
+    private final AtomicInteger heldImages;
+    final ByteBuffer plane;
+    final int rowStride;
+    final int pixelStride;
+
+    PreviewFrame(FrameBufferPool pool, int capacity) {
+        this.pool = pool;
+        this.data = new byte[capacity];
+        this.image = null;
+        this.heldImages = null;
+        this.plane = null;
+        this.rowStride = 0;
+        this.pixelStride = 0;
+    }
+
+    /**
+     * A frame that reads straight from the luma plane of an open camera image.
+     *
+     * @param image      Closed by {@link #release()}.
+     * @param heldImages Decremented by {@link #release()}.
+     */
+    PreviewFrame(AutoCloseable image, AtomicInteger heldImages, ByteBuffer plane,
+                 int rowStride, int pixelStride) {
+        this.pool = null;
+        this.image = image;
+        this.heldImages = heldImages;
+        this.plane = plane;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+    }
+
+    /**
+     * @return true if the frame still holds its camera image and {@link #getData()} is null.
+     */
+    public boolean isZeroCopy() {
+        return image != null;
+    }
+
+    /**
+     * @return The luma of the frame, {@link #getWidth()} bytes per row. The array may be longer
+     * than the frame. Null for a {@link #isZeroCopy() zero-copy} frame.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Left edge of this frame within the camera image. Non-zero when the image was
+     * cropped while copying.
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * @return Top edge of this frame within the camera image.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return Width of the full camera image, in sensor orientation.
+     */
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    /**
+     * @return Height of the full camera image, in sensor orientation.
+     */
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    /**
+     * @return The signature of the decoded area, filled in by the camera, see
+     * {@link DuplicateFrameFilter}.
+     */
+    public FrameSignature getSignature() {
+        return signature;
+    }
+
+    /**
+     * Returns the buffer to its pool, or closes the camera image. The frame must not be used
+     * afterwards.
+     */
+    public void release() {
+        if (image == null) {
+            pool.release(this);
+            return;
+        }
+        try {
+            image.close();
+        } catch (Exception e) {
+            // The image reader was closed underneath us, the image is gone either way.
+        } finally {
+            heldImages.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A rotated, cropped view of the Y plane of a preview frame. Instead of transposing the whole
+ * frame up front, each requested pixel is mapped back to its position in the original data, so
+ * a decode only ever touches the pixels inside the crop rectangle.
+ * <p>
+ * The crop rectangle is given in the coordinates of the original (sensor oriented) data. The
+ * cropped region is then rotated clockwise by 0, 90, 180 or 270 degrees.
+ */
+public final class RotatedLuminanceSource extends LuminanceSource {
+
+    private final byte[] yuvData;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+    private final int cropWidth;
+    private final int cropHeight;
+    private final int rotation;
+
+    /**
+     * @param yuvData    The frame, Y plane first.
+     * @param dataWidth  Width of the frame, also used as the row stride.
+     * @param dataHeight Height of the frame.
+     * @param left       Left edge of the crop rectangle in frame coordinates.
+     * @param top        Top edge of the crop rectangle in frame coordinates.
+     * @param width      Width of the crop rectangle in frame coordinates.
+     * @param height     Height of the crop rectangle in frame coordinates.
+     * @param rotation   Clockwise rotation applied to the crop: 0, 90, 180 or 270.
+     */
+    public RotatedLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int left, int top,
+                                  int width, int height, int rotation) {
+        super(rotation == 90 || rotation == 270 ? height : width,
+                rotation == 90 || rotation == 270 ? width : height);
+
+        if (rotation != 0 && rotation != 90 && rotation != 180 && rotation != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotation);
+        }
+        if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.cropWidth = width;
+        this.cropHeight = height;
+        this.rotation = rotation;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        byte[] yuv = yuvData;
+        switch (rotation) {
+            case 0:
+                System.arraycopy(yuv, (top + y) * dataWidth + left, row, 0, width);
+                break;
+            case 90: {
+                // Output row y is crop column y, read bottom to top.
+                int offset = (top + cropHeight - 1) * dataWidth + left + y;
+                for (int x = 0; x < width; x++, offset -= dataWidth) {
+                    row[x] = yuv[offset];
+                }
+                break;
+            }
+            case 180: {
+                // Output row y is crop row (cropHeight - 1 - y), read right to left.
+                int offset = (top + cropHeight - 1 - y) * dataWidth + left + cropWidth - 1;
+                for (int x = 0; x < width; x++, offset--) {
+                    row[x] = yuv[offset];
+                }
+                break;
+            }
+            default: {
+                // 270: output row y is crop column (cropWidth - 1 - y), read top to bottom.
+                int offset = top * dataWidth + left + cropWidth - 1 - y;
+                for (int x = 0; x < width; x++, offset += dataWidth) {
+                    row[x] = yuv[offset];
+                }
+                break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Copies the rotated crop on the calling thread, see {@link FrameRotator}. Decode workers
+     * already keep every core busy, so they gain nothing from splitting it further.
+     */
+    @Override
+    public byte[] getMatrix() {
+        return getMatrix(null);
+    }
+
+    /**
+     * @param pool Splits large crops across its workers, null to copy on the calling thread.
+     */
+    public byte[] getMatrix(ForkJoinPool pool) {
+        byte[] matrix = new byte[getWidth() * getHeight()];
+        FrameRotator.rotate(yuvData, dataWidth, dataHeight, left, top, cropWidth, cropHeight,
+                rotation, matrix, pool);
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    /**
+     * @param left   Left edge in the rotated coordinates of this source.
+     * @param top    Top edge in the rotated coordinates of this source.
+     * @param width  Width in the rotated coordinates of this source.
+     * @param height Height in the rotated coordinates of this source.
+     */
+    @Override
+    public RotatedLuminanceSource crop(int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || left + width > getWidth() || top + height > getHeight()) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        int[] rect = unrotateRect(rotation, cropWidth, cropHeight, left, top, width, height);
+        return new RotatedLuminanceSource(yuvData, dataWidth, dataHeight,
+                this.left + rect[0], this.top + rect[1], rect[2], rect[3], rotation);
+    }
+
+    /**
+     * Maps a rectangle given in rotated coordinates back onto the unrotated crop it was
+     * rotated from.
+     *
+     * @return left, top, width and height within the unrotated crop.
+     */
+    static int[] unrotateRect(int rotation, int cropWidth, int cropHeight,
+                              int left, int top, int width, int height) {
+        switch (rotation) {
+            case 0:
+                return new int[]{left, top, width, height};
+            case 90:
+                return new int[]{top, cropHeight - left - width, height, width};
+            case 180:
+                return new int[]{cropWidth - left - width, cropHeight - top - height, width, height};
+            default:
+                return new int[]{cropWidth - top - height, left, height, width};
+        }
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new RotatedLuminanceSource(yuvData, dataWidth, dataHeight, left, top,
+                cropWidth, cropHeight, (rotation + 270) % 360);
+    }
+
+    public int getDataWidth() {
+        return dataWidth;
+    }
+
+    public int getDataHeight() {
+        return dataHeight;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+}
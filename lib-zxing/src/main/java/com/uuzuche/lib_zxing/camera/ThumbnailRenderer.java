@@ -0,0 +1,102 @@
+package com.uuzuche.lib_zxing.camera;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Renders the luminance a barcode was decoded from as a greyscale bitmap, optionally downscaled
+ * and as ALPHA_8 to keep the result small.
+ * <p>
+ * 将解码用的灰度数据绘制为Bitmap，可缩小尺寸或使用ALPHA_8节省内存
+ */
+public final class ThumbnailRenderer {
+
+    private ThumbnailRenderer() {
+    }
+
+    /**
+     * Renders the whole source at full size as an opaque ARGB_8888 bitmap.
+     */
+    public static Bitmap renderCroppedGreyscaleBitmap(LuminanceSource source) {
+        return render(source, 1, false);
+    }
+
+    /**
+     * @param downscale Keep every n-th pixel in each direction, at least 1.
+     * @param alpha8    Store the grey level in the alpha channel of an ALPHA_8 bitmap instead
+     *                  of an opaque ARGB_8888 one.
+     */
+    public static Bitmap render(LuminanceSource source, int downscale, boolean alpha8) {
+        int width = scaledSize(source.getWidth(), downscale);
+        int height = scaledSize(source.getHeight(), downscale);
+        byte[] grey = downscale(source, downscale);
+
+        if (alpha8) {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+            int rowBytes = bitmap.getRowBytes();
+            ByteBuffer buffer;
+            if (rowBytes == width) {
+                buffer = ByteBuffer.wrap(grey);
+            } else {
+                // Rows may be padded for alignment.
+                buffer = ByteBuffer.allocate(rowBytes * height);
+                for (int y = 0; y < height; y++) {
+                    buffer.position(y * rowBytes);
+                    buffer.put(grey, y * width, width);
+                }
+                buffer.rewind();
+            }
+            bitmap.copyPixelsFromBuffer(buffer);
+            return bitmap;
+        }
+
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | ((grey[i] & 0xff) * 0x00010101);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+
+    /**
+     * Samples every {@code downscale}-th pixel of every {@code downscale}-th row. Only the rows
+     * that are kept are read from the source.
+     *
+     * @return The sampled luminance, {@code scaledSize(width, downscale)} bytes per row.
+     */
+    static byte[] downscale(LuminanceSource source, int downscale) {
+        if (downscale < 1) {
+            throw new IllegalArgumentException("downscale must be >= 1: " + downscale);
+        }
+        if (downscale == 1 && source instanceof RotatedLuminanceSource) {
+            // A full size thumbnail is a plain rotated copy. It is rendered once per scan, after
+            // the other workers were cancelled, so the cores are free to share it.
+            return ((RotatedLuminanceSource) source).getMatrix(FrameRotator.getDefaultPool());
+        }
+        int sourceWidth = source.getWidth();
+        int width = scaledSize(sourceWidth, downscale);
+        int height = scaledSize(source.getHeight(), downscale);
+        byte[] grey = new byte[width * height];
+        byte[] row = new byte[sourceWidth];
+        for (int y = 0; y < height; y++) {
+            row = source.getRow(y * downscale, row);
+            if (downscale == 1) {
+                System.arraycopy(row, 0, grey, y * width, width);
+                continue;
+            }
+            int outputOffset = y * width;
+            for (int x = 0; x < width; x++) {
+                grey[outputOffset + x] = row[x * downscale];
+            }
+        }
+        return grey;
+    }
+
+    static int scaledSize(int size, int downscale) {
+        return Math.max(1, (size + downscale - 1) / downscale);
+    }
+}
@@ -0,0 +1,59 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Passes every read through to another luminance source, checking a {@link DecodeBudget}
+ * first. Readers that scan row by row are stopped between two rows.
+ */
+final class BudgetedLuminanceSource extends LuminanceSource {
+
+    private final LuminanceSource source;
+    private final DecodeBudget budget;
+
+    BudgetedLuminanceSource(LuminanceSource source, DecodeBudget budget) {
+        super(source.getWidth(), source.getHeight());
+        this.source = source;
+        this.budget = budget;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        budget.check();
+        return source.getRow(y, row);
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        budget.check();
+        byte[] matrix = source.getMatrix();
+        // Checked again before the binarizer and a 2D detector start working on it.
+        budget.check();
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return source.isCropSupported();
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+        return new BudgetedLuminanceSource(source.crop(left, top, width, height), budget);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return source.isRotateSupported();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new BudgetedLuminanceSource(source.rotateCounterClockwise(), budget);
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise45() {
+        return new BudgetedLuminanceSource(source.rotateCounterClockwise45(), budget);
+    }
+}
@@ -30,9 +30,12 @@ import com.google.zxing.Result;
 import com.uuzuche.lib_zxing.R;
 import com.uuzuche.lib_zxing.activity.CaptureFragment;
 import com.uuzuche.lib_zxing.camera.CameraManager;
+import com.uuzuche.lib_zxing.camera.DuplicateFrameFilter;
+import com.uuzuche.lib_zxing.camera.FrameRing;
 import com.uuzuche.lib_zxing.view.ViewfinderView;
 import com.uuzuche.lib_zxing.view.ViewfinderResultPointCallback;
 
+import java.util.Locale;
 import java.util.Vector;
 
 /**
@@ -43,8 +46,20 @@ public final class CaptureActivityHandler extends Handler {
     private static final String TAG = CaptureActivityHandler.class.getSimpleName();
 
     private final CaptureFragment fragment;
-    private final DecodeThread decodeThread;
+    private final DecodeThreadPool decodePool;
+    private final FrameScheduler scheduler;
     private State state;
+    /**
+     * Codes delivered in continuous mode, and when the first scan started.
+     */
+    private long codesDelivered;
+    private long continuousStartNanos;
+    /**
+     * When the current scan started, 0 once it found a code, and whether it meters on the
+     * framing rect.
+     */
+    private long scanStartNanos;
+    private boolean scanMetering;
 
     private enum State {
         PREVIEW,
@@ -54,10 +69,24 @@ public final class CaptureActivityHandler extends Handler {
 
     public CaptureActivityHandler(CaptureFragment fragment, Vector<BarcodeFormat> decodeFormats,
                                   String characterSet, ViewfinderView viewfinderView) {
+        this(fragment, decodeFormats, characterSet, viewfinderView, new DecodeConfig());
+    }
+
+    public CaptureActivityHandler(CaptureFragment fragment, Vector<BarcodeFormat> decodeFormats,
+                                  String characterSet, ViewfinderView viewfinderView,
+                                  DecodeConfig config) {
         this.fragment = fragment;
-        decodeThread = new DecodeThread(fragment, decodeFormats, characterSet,
+        scheduler = new FrameScheduler(config);
+        decodePool = new DecodeThreadPool(fragment, config, scheduler, decodeFormats, characterSet,
                 new ViewfinderResultPointCallback(viewfinderView));
-        decodeThread.start();
+        CameraManager.get().setFrameScheduler(scheduler);
+        DuplicateFrameFilter duplicateFilter = CameraManager.get().getDuplicateFrameFilter();
+        duplicateFilter.setTolerance(config.getDuplicateFrameTolerance());
+        duplicateFilter.setEnabled(config.isDuplicateFrameFilter());
+        CameraManager.get().getFrameRing().configure(config.getFrameRingCapacity(),
+                config.getFrameDropPolicy());
+        CameraManager.get().setMeteringEnabled(config.isFramingRectMetering());
+        decodePool.start();
         state = State.SUCCESS;
         // Start decoding.
         restartDecode();
@@ -70,7 +99,15 @@ public final class CaptureActivityHandler extends Handler {
             restartDecode();
         } else if (message.what == R.id.decode_succeeded) {
             Log.d(TAG, "Got decode succeeded message");
+            if (state != State.PREVIEW) {
+                return;
+            }
             state = State.SUCCESS;
+            onScanDecoded();
+            // The first result wins, stop feeding frames to the other workers.
+            CameraManager.get().cancelDecodeRequests();
+            CameraManager.get().getDuplicateFrameFilter().reset();
+            decodePool.cancelPending();
             Bundle bundle = message.getData();
 
             /***********************************************************************/
@@ -79,10 +116,36 @@ public final class CaptureActivityHandler extends Handler {
 
             fragment.handleDecode((Result) message.obj, barcode);//���ؽ��
             /***********************************************************************/
+        } else if (message.what == R.id.decode_multiple) {
+            // Continuous mode: hand the codes over and keep this worker scanning.
+            if (state == State.PREVIEW && message.arg2 == decodePool.getGeneration()) {
+                Result[] results = (Result[]) message.obj;
+                ResultDeduplicator deduplicator = decodePool.getDeduplicator();
+                if (deduplicator != null) {
+                    // Another frame in flight may have delivered some of them meanwhile.
+                    results = deduplicator.filter(results);
+                }
+                if (results.length > 0) {
+                    codesDelivered += results.length;
+                    onScanDecoded();
+                    fragment.handleMultipleDecode(results);
+                    if (deduplicator != null) {
+                        deduplicator.record(results);
+                    }
+                }
+                scheduleDecode(message.arg1);
+            }
         } else if (message.what == R.id.decode_failed) {
-            // We're decoding as fast as possible, so when one decode fails, start another.
-            state = State.PREVIEW;
-            CameraManager.get().requestDecode(decodeThread.getHandler(),R.id.decode);
+            // When one decode fails, start another on the same worker once the scheduler
+            // allows it. Failures from a scan that already succeeded are ignored.
+            if (state == State.PREVIEW && message.arg2 == decodePool.getGeneration()) {
+                scheduleDecode(message.arg1);
+            }
+        } else if (message.what == R.id.decode_request) {
+            // A delayed request from the scheduler.
+            if (state == State.PREVIEW && message.arg2 == decodePool.getGeneration()) {
+                requestDecode(message.arg1);
+            }
         } else if (message.what == R.id.return_scan_result) {
             Log.d(TAG, "Got return scan result message");
             fragment.getActivity().setResult(Activity.RESULT_OK, (Intent) message.obj);
@@ -98,25 +161,105 @@ public final class CaptureActivityHandler extends Handler {
 
     public void quitSynchronously() {
         state = State.DONE;
-        Message quit = Message.obtain(decodeThread.getHandler(), R.id.quit);
-        quit.sendToTarget();
-        try {
-            decodeThread.join();
-        } catch (InterruptedException e) {
-            // continue
+        CameraManager.get().setFrameScheduler(null);
+        CameraManager.get().cancelDecodeRequests();
+        decodePool.quitSynchronously();
+        Log.d(TAG, "Scheduler " + scheduler.getPolicy() + " "
+                + scheduler.getStats(scheduler.getPolicy()));
+        Log.d(TAG, CameraManager.get().getDuplicateFrameFilter().toString());
+        Log.d(TAG, CameraManager.get().getFrameRing().toString());
+        Log.d(TAG, CameraManager.get().getMeteringStats().toString());
+        if (decodePool.getDeduplicator() != null) {
+            Log.d(TAG, decodePool.getDeduplicator().toString());
+        }
+        if (codesDelivered > 0) {
+            Log.d(TAG, "Continuous scan " + codesDelivered + " codes, "
+                    + String.format(Locale.US, "%.1f", getCodesPerSecond()) + " codes/s");
         }
+        CameraManager.get().getDuplicateFrameFilter().setEnabled(false);
+        CameraManager.get().getFrameRing().configure(0, FrameRing.DropPolicy.NEWEST_WINS);
 
         // Be absolutely sure we don't send any queued up messages
         removeMessages(R.id.decode_succeeded);
         removeMessages(R.id.decode_failed);
+        removeMessages(R.id.decode_request);
+        removeMessages(R.id.decode_multiple);
     }
 
     private void restartDecode() {
         if (state == State.SUCCESS) {
             state = State.PREVIEW;
-            CameraManager.get().requestDecode(decodeThread.getHandler(),R.id.decode);
+            if (continuousStartNanos == 0) {
+                continuousStartNanos = System.nanoTime();
+            }
+            decodePool.resume();
+            scanStartNanos = System.nanoTime();
+            scanMetering = CameraManager.get().isMeteringEnabled();
+            CameraManager.get().getMeteringStats().onScanStarted(scanMetering);
+            // Queue one request per worker so frames are dealt out round-robin.
+            for (int i = 0; i < decodePool.size(); i++) {
+                scheduleDecode(i);
+            }
             fragment.drawViewfinder();
         }
     }
 
+    /**
+     * Records the time to decode of the current scan, once.
+     */
+    private void onScanDecoded() {
+        if (scanStartNanos != 0) {
+            CameraManager.get().getMeteringStats().onScanDecoded(scanMetering,
+                    System.nanoTime() - scanStartNanos);
+            scanStartNanos = 0;
+        }
+    }
+
+    private void scheduleDecode(int worker) {
+        long delayMillis = scheduler.nextRequestDelayNanos(System.nanoTime()) / 1000000L;
+        if (delayMillis <= 0) {
+            requestDecode(worker);
+        } else {
+            Message message = obtainMessage(R.id.decode_request, worker, decodePool.getGeneration());
+            sendMessageDelayed(message, delayMillis);
+        }
+    }
+
+    private void requestDecode(int worker) {
+        CameraManager.get().requestDecode(decodePool.getHandler(worker), R.id.decode);
+    }
+
+    /**
+     * @return The counters of one decode worker, for measuring per-worker throughput.
+     */
+    public DecodeStats getDecodeStats(int worker) {
+        return decodePool.getStats(worker);
+    }
+
+    /**
+     * @return The scheduler pacing decode requests, e.g. to switch policy or read its stats.
+     */
+    public FrameScheduler getFrameScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return Codes delivered per second since scanning started, in continuous mode.
+     */
+    public double getCodesPerSecond() {
+        long elapsed = System.nanoTime() - continuousStartNanos;
+        return continuousStartNanos == 0 || elapsed <= 0 ? 0 : codesDelivered * 1e9 / elapsed;
+    }
+
+    /**
+     * @return The deduplication of results, e.g. to read its hit counts, or null if it is off.
+     */
+    public ResultDeduplicator getResultDeduplicator() {
+        return decodePool.getDeduplicator();
+    }
+
+    public int getDecodeWorkerCount() {
+        return decodePool.size();
+    }
+
 }
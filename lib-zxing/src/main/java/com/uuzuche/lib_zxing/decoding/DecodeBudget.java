@@ -0,0 +1,85 @@
+package com.uuzuche.lib_zxing.decoding;
+
+/**
+ * The time one frame may take to decode, plus a flag to abandon it early. ZXing has no way to
+ * stop a reader, so the decode path calls {@link #check()} at points it passes often: every
+ * luminance row read, every possible result point found, and between cascade tiers. Once the
+ * budget is spent, {@link #check()} throws and unwinds the reader.
+ * <p>
+ * 单帧解码的时间预算，超时或取消时中断解码
+ */
+final class DecodeBudget {
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    static final DecodeAbortedException EXCEEDED = new DecodeAbortedException("Frame budget exceeded");
+    static final DecodeAbortedException CANCELLED = new DecodeAbortedException("Decode cancelled");
+
+    private final long budgetNanos;
+    private volatile boolean cancelled;
+    private long deadlineNanos = UNLIMITED;
+
+    /**
+     * @param budgetNanos Time allowed per frame, 0 for no limit.
+     */
+    DecodeBudget(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Starts the clock for a new frame. Called on the worker thread. Leaves a pending cancel in
+     * place, so a cancel that arrives just before the frame starts still abandons it.
+     */
+    void start() {
+        deadlineNanos = budgetNanos > 0 ? System.nanoTime() + budgetNanos : UNLIMITED;
+    }
+
+    /**
+     * Abandons the current frame, or the next one if none is being decoded. Safe to call from
+     * any thread.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Drops a pending cancel. Called on the worker thread before it checks whether the frame is
+     * still wanted, so a cancel sent after that check is kept and one sent before it is seen
+     * there.
+     */
+    void clearCancel() {
+        cancelled = false;
+    }
+
+    /**
+     * @throws DecodeAbortedException if the frame was cancelled or ran out of time.
+     */
+    void check() {
+        if (cancelled) {
+            // The cancel is used up by the frame it abandons.
+            cancelled = false;
+            throw CANCELLED;
+        }
+        if (deadlineNanos != UNLIMITED && System.nanoTime() > deadlineNanos) {
+            throw EXCEEDED;
+        }
+    }
+
+    /**
+     * Unchecked, so it passes through readers that only catch {@code ReaderException}. Shared
+     * instances without a stack trace, since it is thrown on the hot path.
+     */
+    static final class DecodeAbortedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        DecodeAbortedException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.uuzuche.lib_zxing.decoding;
+
+/**
+ * An ordered list of {@link DecodeTier}s, cheapest first. Every frame is tried with the first
+ * tier. After {@link #getEscalateAfterMisses()} frames in a row without a result, a failed
+ * frame is retried with the next tier as well, after twice as many with the one after that,
+ * and so on. The first result resets the cascade to the first tier.
+ * <p>
+ * Each decode worker keeps its own count of misses.
+ * <p>
+ * 级联解码：先用低成本的方式解码，连续失败后再逐级增加格式、分辨率和TRY_HARDER
+ */
+public final class DecodeCascade {
+
+    private final DecodeTier[] tiers;
+    private final int escalateAfterMisses;
+
+    /**
+     * @param escalateAfterMisses Consecutive misses before the next tier is added, at least 1.
+     * @param tiers               At least one tier, cheapest first.
+     */
+    public DecodeCascade(int escalateAfterMisses, DecodeTier... tiers) {
+        if (escalateAfterMisses < 1) {
+            throw new IllegalArgumentException("escalateAfterMisses must be >= 1: " + escalateAfterMisses);
+        }
+        if (tiers == null || tiers.length == 0) {
+            throw new IllegalArgumentException("A cascade needs at least one tier");
+        }
+        this.tiers = tiers.clone();
+        this.escalateAfterMisses = escalateAfterMisses;
+    }
+
+    /**
+     * @return One full resolution pass over every format, the behaviour without a cascade.
+     */
+    public static DecodeCascade singlePass() {
+        return new DecodeCascade(1, new DecodeTier(null, 1, false));
+    }
+
+    /**
+     * @return A cascade for scans that are mostly QR codes: QR at half resolution first, then
+     * every format at full resolution, then every format with {@code TRY_HARDER}.
+     */
+    public static DecodeCascade qrFirst() {
+        return new DecodeCascade(3,
+                new DecodeTier(DecodeFormatManager.QR_CODE_FORMATS, 2, false),
+                new DecodeTier(null, 1, false),
+                new DecodeTier(null, 1, true));
+    }
+
+    public int getTierCount() {
+        return tiers.length;
+    }
+
+    public DecodeTier getTier(int index) {
+        return tiers[index];
+    }
+
+    public int getEscalateAfterMisses() {
+        return escalateAfterMisses;
+    }
+
+    /**
+     * @param consecutiveMisses Frames in a row that were decoded without a result.
+     * @return How many tiers, from the first, to try on the next frame.
+     */
+    public int tiersToTry(int consecutiveMisses) {
+        return Math.min(tiers.length, 1 + consecutiveMisses / escalateAfterMisses);
+    }
+}
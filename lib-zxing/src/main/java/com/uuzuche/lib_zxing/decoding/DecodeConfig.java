@@ -0,0 +1,549 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.uuzuche.lib_zxing.camera.FrameRing;
+
+/**
+ * Tuning knobs for the decode pipeline of a {@link com.uuzuche.lib_zxing.activity.CaptureFragment}.
+ * <p>
+ * 解码流程的配置参数，在CaptureFragment开始扫描前设置
+ */
+public final class DecodeConfig {
+
+    /**
+     * Upper bound for the default worker count. Beyond this the camera, not the decoder, is the
+     * bottleneck and extra workers only add memory.
+     */
+    private static final int MAX_DEFAULT_WORKERS = 4;
+
+    /**
+     * How frames are turned black and white before the readers see them.
+     */
+    public enum BinarizerType {
+        /**
+         * ZXing's {@link com.google.zxing.common.HybridBinarizer}, allocating per frame.
+         */
+        HYBRID,
+        /**
+         * {@link ReusableHybridBinarizer}: the same output, with buffers kept per worker.
+         */
+        REUSABLE_HYBRID,
+        /**
+         * {@link IntegralImageBinarizer}: a sliding window mean, for uneven lighting.
+         */
+        INTEGRAL_IMAGE
+    }
+
+    /**
+     * When the negative of a frame is decoded too, for light-on-dark codes such as dark mode
+     * screens or laser etched parts. The negative is flipped from the matrix already binarized,
+     * so it costs the readers' time but not a second binarization.
+     */
+    public enum InversionStrategy {
+        /**
+         * Dark-on-light codes only.
+         */
+        OFF,
+        /**
+         * Every other frame, after its normal attempt missed.
+         */
+        ALTERNATE,
+        /**
+         * After {@link #getInversionAfterMisses()} frames in a row missed, and first while the
+         * codes found are inverted.
+         */
+        ADAPTIVE
+    }
+
+    private int workerCount;
+    private boolean thumbnailEnabled;
+    private int thumbnailDownscale = 1;
+    private boolean thumbnailAlpha8;
+    private FrameScheduler.Policy schedulerPolicy = FrameScheduler.Policy.MAX_THROUGHPUT;
+    private float targetFps = 10;
+    private DecodeCascade cascade = DecodeCascade.singlePass();
+    private boolean formatPrioritization;
+    private long frameBudgetMillis;
+    private int pyramidLevels = 1;
+    private boolean sharpnessGate;
+    private boolean duplicateFrameFilter;
+    private boolean roiTracking;
+    private boolean continuousScan;
+    private BinarizerType binarizerType = BinarizerType.HYBRID;
+    private int integralWindowSize;
+    private int integralThresholdPercent = IntegralImageBinarizer.DEFAULT_THRESHOLD_PERCENT;
+    private InversionStrategy inversionStrategy = InversionStrategy.OFF;
+    private int inversionAfterMisses = 3;
+    private long deduplicationTtlMillis;
+    private int deduplicationCapacity = 64;
+    private ResultDeduplicator.Eviction deduplicationEviction =
+            ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN;
+    private int duplicateFrameTolerance = 4;
+    private int frameRingCapacity;
+    private FrameRing.DropPolicy frameDropPolicy = FrameRing.DropPolicy.NEWEST_WINS;
+    private boolean zeroCopyEnabled;
+    private long pauseGracePeriodMillis;
+    private boolean framingRectMetering;
+    private boolean tapToFocus;
+
+    public DecodeConfig() {
+        // Leave one core for the camera and UI threads.
+        int cores = Runtime.getRuntime().availableProcessors();
+        workerCount = Math.max(1, Math.min(MAX_DEFAULT_WORKERS, cores - 1));
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Sets how many decode threads run in parallel. Each worker owns its own reader, so frames
+     * can be decoded concurrently.
+     *
+     * @param workerCount number of decode workers, at least 1
+     */
+    public void setWorkerCount(int workerCount) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be >= 1: " + workerCount);
+        }
+        this.workerCount = workerCount;
+    }
+
+    public boolean isThumbnailEnabled() {
+        return thumbnailEnabled;
+    }
+
+    /**
+     * Whether a greyscale image of the decoded region is rendered and passed to
+     * {@code AnalyzeCallback.onAnalyzeSuccess}. Rendering costs time between the decode and the
+     * callback, so it is off by default and the callback receives a null bitmap.
+     * <p>
+     * 是否生成扫码结果的灰度缩略图，默认关闭
+     */
+    public void setThumbnailEnabled(boolean thumbnailEnabled) {
+        this.thumbnailEnabled = thumbnailEnabled;
+    }
+
+    public int getThumbnailDownscale() {
+        return thumbnailDownscale;
+    }
+
+    /**
+     * @param thumbnailDownscale the thumbnail keeps every n-th pixel in each direction, at
+     *                           least 1. Defaults to 1, the full decoded region.
+     */
+    public void setThumbnailDownscale(int thumbnailDownscale) {
+        if (thumbnailDownscale < 1) {
+            throw new IllegalArgumentException("thumbnailDownscale must be >= 1: " + thumbnailDownscale);
+        }
+        this.thumbnailDownscale = thumbnailDownscale;
+    }
+
+    public boolean isThumbnailAlpha8() {
+        return thumbnailAlpha8;
+    }
+
+    /**
+     * Renders the thumbnail as an ALPHA_8 bitmap, one byte per pixel instead of four. The grey
+     * level is stored in the alpha channel, so draw it with a Paint whose colour is opaque.
+     * Defaults to false, an opaque ARGB_8888 bitmap.
+     */
+    public void setThumbnailAlpha8(boolean thumbnailAlpha8) {
+        this.thumbnailAlpha8 = thumbnailAlpha8;
+    }
+
+    public FrameScheduler.Policy getSchedulerPolicy() {
+        return schedulerPolicy;
+    }
+
+    /**
+     * Sets how often idle workers ask for the next frame. Defaults to
+     * {@link FrameScheduler.Policy#MAX_THROUGHPUT}.
+     * <p>
+     * 解码调度策略：最大吞吐、固定帧率或省电
+     */
+    public void setSchedulerPolicy(FrameScheduler.Policy schedulerPolicy) {
+        if (schedulerPolicy == null) {
+            throw new IllegalArgumentException("schedulerPolicy must not be null");
+        }
+        this.schedulerPolicy = schedulerPolicy;
+    }
+
+    public float getTargetFps() {
+        return targetFps;
+    }
+
+    /**
+     * @param targetFps decoded frames per second under {@link FrameScheduler.Policy#FIXED_FPS},
+     *                  greater than 0. Defaults to 10.
+     */
+    public void setTargetFps(float targetFps) {
+        if (!(targetFps > 0)) {
+            throw new IllegalArgumentException("targetFps must be > 0: " + targetFps);
+        }
+        this.targetFps = targetFps;
+    }
+
+    public DecodeCascade getCascade() {
+        return cascade;
+    }
+
+    /**
+     * Sets the passes each frame goes through, see {@link DecodeCascade#qrFirst()} for scans
+     * that are mostly QR codes. Defaults to {@link DecodeCascade#singlePass()}.
+     */
+    public void setCascade(DecodeCascade cascade) {
+        if (cascade == null) {
+            throw new IllegalArgumentException("cascade must not be null");
+        }
+        this.cascade = cascade;
+    }
+
+    public boolean isFormatPrioritization() {
+        return formatPrioritization;
+    }
+
+    /**
+     * Whether the formats found so far decide the order in which readers are tried, with rarely
+     * seen formats only re-probed now and then. Defaults to false, the fixed order of
+     * {@code MultiFormatReader}.
+     * <p>
+     * 根据扫码历史自动调整格式顺序
+     */
+    public void setFormatPrioritization(boolean formatPrioritization) {
+        this.formatPrioritization = formatPrioritization;
+    }
+
+    public long getFrameBudgetMillis() {
+        return frameBudgetMillis;
+    }
+
+    /**
+     * Abandons a frame that takes longer than this to decode, so the worker can move on to a
+     * fresher one. Overruns are counted in {@link DecodeStats#getBudgetOverrunCount()}.
+     * Defaults to 0, no limit.
+     * <p>
+     * 单帧解码超时时间，0表示不限制
+     */
+    public void setFrameBudgetMillis(long frameBudgetMillis) {
+        if (frameBudgetMillis < 0) {
+            throw new IllegalArgumentException("frameBudgetMillis must be >= 0: " + frameBudgetMillis);
+        }
+        this.frameBudgetMillis = frameBudgetMillis;
+    }
+
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    /**
+     * Decodes each frame at 1/2, 1/4, ... resolution first and only falls back to full
+     * resolution when the coarser levels find nothing. Large, close codes are then found on a
+     * fraction of the pixels. Levels too small to hold a code are skipped.
+     * <p>
+     * 多分辨率解码的层数，1表示只用原始分辨率
+     *
+     * @param pyramidLevels levels including full resolution, at least 1. Defaults to 1.
+     */
+    public void setPyramidLevels(int pyramidLevels) {
+        if (pyramidLevels < 1) {
+            throw new IllegalArgumentException("pyramidLevels must be >= 1: " + pyramidLevels);
+        }
+        this.pyramidLevels = pyramidLevels;
+    }
+
+    public boolean isSharpnessGate() {
+        return sharpnessGate;
+    }
+
+    /**
+     * Whether frames that are much blurrier than recent ones are skipped without decoding, see
+     * {@link SharpnessGate}. Skips are counted in {@link DecodeStats#getSkipRatio()}. Defaults
+     * to false.
+     * <p>
+     * 是否跳过模糊的帧
+     */
+    public void setSharpnessGate(boolean sharpnessGate) {
+        this.sharpnessGate = sharpnessGate;
+    }
+
+    public boolean isDuplicateFrameFilter() {
+        return duplicateFrameFilter;
+    }
+
+    /**
+     * Whether frames that look the same as the last frame that failed to decode are skipped,
+     * see {@link com.uuzuche.lib_zxing.camera.DuplicateFrameFilter}. Defaults to false.
+     * <p>
+     * 是否跳过与上一帧失败画面相同的帧
+     */
+    public void setDuplicateFrameFilter(boolean duplicateFrameFilter) {
+        this.duplicateFrameFilter = duplicateFrameFilter;
+    }
+
+    public int getDuplicateFrameTolerance() {
+        return duplicateFrameTolerance;
+    }
+
+    /**
+     * How far, in grey levels, a frame may differ from the last failed frame and still be
+     * skipped. Higher values skip more frames. Defaults to 4.
+     */
+    public void setDuplicateFrameTolerance(int duplicateFrameTolerance) {
+        if (duplicateFrameTolerance < 0) {
+            throw new IllegalArgumentException("tolerance must be >= 0: " + duplicateFrameTolerance);
+        }
+        this.duplicateFrameTolerance = duplicateFrameTolerance;
+    }
+
+    public int getFrameRingCapacity() {
+        return frameRingCapacity;
+    }
+
+    /**
+     * How many preview frames are kept while every worker is busy, see {@link FrameRing}. A
+     * worker that finishes then starts on a kept frame instead of waiting for the camera.
+     * Defaults to 0, dropping such frames.
+     * <p>
+     * 解码线程都忙时缓存的预览帧数
+     */
+    public void setFrameRingCapacity(int frameRingCapacity) {
+        if (frameRingCapacity < 0) {
+            throw new IllegalArgumentException("frameRingCapacity must be >= 0: " + frameRingCapacity);
+        }
+        this.frameRingCapacity = frameRingCapacity;
+    }
+
+    public FrameRing.DropPolicy getFrameDropPolicy() {
+        return frameDropPolicy;
+    }
+
+    /**
+     * What happens to a frame when the ring is full. Defaults to
+     * {@link FrameRing.DropPolicy#NEWEST_WINS}.
+     */
+    public void setFrameDropPolicy(FrameRing.DropPolicy frameDropPolicy) {
+        if (frameDropPolicy == null) {
+            throw new IllegalArgumentException("frameDropPolicy must not be null");
+        }
+        this.frameDropPolicy = frameDropPolicy;
+    }
+
+    public boolean isZeroCopyEnabled() {
+        return zeroCopyEnabled;
+    }
+
+    /**
+     * Whether workers decode preview frames straight from the camera image instead of a copy,
+     * see {@link com.uuzuche.lib_zxing.camera.CameraManager#setZeroCopyEnabled}. Takes effect
+     * when the camera is opened. Defaults to false.
+     * <p>
+     * 零拷贝：解码线程直接读取相机图像
+     */
+    public void setZeroCopyEnabled(boolean zeroCopyEnabled) {
+        this.zeroCopyEnabled = zeroCopyEnabled;
+    }
+
+    public long getPauseGracePeriodMillis() {
+        return pauseGracePeriodMillis;
+    }
+
+    /**
+     * How long the camera stays open with its preview stopped after the fragment is paused, so
+     * that coming back within it resumes scanning at once instead of reopening the camera. The
+     * camera is closed earlier if the app is hidden or memory runs low. Defaults to 0, closing
+     * the camera on pause.
+     * <p>
+     * 暂停后保持相机打开的宽限时间，0表示立即关闭
+     */
+    public void setPauseGracePeriodMillis(long pauseGracePeriodMillis) {
+        if (pauseGracePeriodMillis < 0) {
+            throw new IllegalArgumentException("pauseGracePeriodMillis must be >= 0: " + pauseGracePeriodMillis);
+        }
+        this.pauseGracePeriodMillis = pauseGracePeriodMillis;
+    }
+
+    public boolean isFramingRectMetering() {
+        return framingRectMetering;
+    }
+
+    /**
+     * Whether autofocus and auto-exposure are metered on the framing rect rather than the whole
+     * frame, see {@link com.uuzuche.lib_zxing.camera.CameraManager#setMeteringEnabled}.
+     * Defaults to false.
+     * <p>
+     * 对焦和测光区域限定在扫描框内
+     */
+    public void setFramingRectMetering(boolean framingRectMetering) {
+        this.framingRectMetering = framingRectMetering;
+    }
+
+    public boolean isTapToFocus() {
+        return tapToFocus;
+    }
+
+    /**
+     * Whether tapping the viewfinder focuses on the tapped point for a few seconds, see
+     * {@link com.uuzuche.lib_zxing.camera.CameraManager#focusAt}. Defaults to false.
+     * <p>
+     * 点击对焦
+     */
+    public void setTapToFocus(boolean tapToFocus) {
+        this.tapToFocus = tapToFocus;
+    }
+
+    public boolean isRoiTracking() {
+        return roiTracking;
+    }
+
+    /**
+     * Whether possible result points of failed frames narrow the area decoded in the next
+     * frames, see {@link RoiTracker}. Defaults to false.
+     * <p>
+     * 是否根据定位点缩小解码区域
+     */
+    public void setRoiTracking(boolean roiTracking) {
+        this.roiTracking = roiTracking;
+    }
+
+    public boolean isContinuousScan() {
+        return continuousScan;
+    }
+
+    /**
+     * Whether the scan keeps running after a result and reports every code of each frame,
+     * e.g. for taking stock. Results go to
+     * {@link com.uuzuche.lib_zxing.activity.CodeUtils.ContinuousAnalyzeCallback}, and the
+     * cascade, pyramid, sharpness gate and region tracking are not used; the frame budget,
+     * binarizer and inversion strategy are. Defaults to false.
+     * <p>
+     * 连续扫码模式：识别每帧中的所有条码且不停止扫描
+     */
+    public void setContinuousScan(boolean continuousScan) {
+        this.continuousScan = continuousScan;
+    }
+
+    public long getDeduplicationTtlMillis() {
+        return deduplicationTtlMillis;
+    }
+
+    /**
+     * How long after its last sighting the same code is reported again, see
+     * {@link ResultDeduplicator}. Repeats are dropped before any thumbnail or callback work.
+     * Defaults to 0, which reports every result.
+     * <p>
+     * 结果去重时间，0表示不去重
+     */
+    public void setDeduplicationTtlMillis(long deduplicationTtlMillis) {
+        if (deduplicationTtlMillis < 0) {
+            throw new IllegalArgumentException("deduplicationTtlMillis must be >= 0: " + deduplicationTtlMillis);
+        }
+        this.deduplicationTtlMillis = deduplicationTtlMillis;
+    }
+
+    public int getDeduplicationCapacity() {
+        return deduplicationCapacity;
+    }
+
+    /**
+     * How many codes the deduplication remembers. Defaults to 64.
+     */
+    public void setDeduplicationCapacity(int deduplicationCapacity) {
+        if (deduplicationCapacity < 1) {
+            throw new IllegalArgumentException("deduplicationCapacity must be >= 1: " + deduplicationCapacity);
+        }
+        this.deduplicationCapacity = deduplicationCapacity;
+    }
+
+    public ResultDeduplicator.Eviction getDeduplicationEviction() {
+        return deduplicationEviction;
+    }
+
+    /**
+     * Which code the deduplication forgets once it is full. Defaults to
+     * {@link ResultDeduplicator.Eviction#LEAST_RECENTLY_SEEN}.
+     */
+    public void setDeduplicationEviction(ResultDeduplicator.Eviction deduplicationEviction) {
+        if (deduplicationEviction == null) {
+            throw new IllegalArgumentException("deduplicationEviction must not be null");
+        }
+        this.deduplicationEviction = deduplicationEviction;
+    }
+
+    public BinarizerType getBinarizerType() {
+        return binarizerType;
+    }
+
+    /**
+     * Defaults to {@link BinarizerType#HYBRID}.
+     * <p>
+     * 二值化方式
+     */
+    public void setBinarizerType(BinarizerType binarizerType) {
+        if (binarizerType == null) {
+            throw new IllegalArgumentException("binarizerType must not be null");
+        }
+        this.binarizerType = binarizerType;
+    }
+
+    public int getIntegralWindowSize() {
+        return integralWindowSize;
+    }
+
+    /**
+     * Window of {@link BinarizerType#INTEGRAL_IMAGE}, in pixels of the decoded source. Should be
+     * a few modules wide. Defaults to 0, an eighth of the larger side of the source.
+     */
+    public void setIntegralWindowSize(int integralWindowSize) {
+        if (integralWindowSize < 0) {
+            throw new IllegalArgumentException("integralWindowSize must be >= 0: " + integralWindowSize);
+        }
+        this.integralWindowSize = integralWindowSize;
+    }
+
+    public int getIntegralThresholdPercent() {
+        return integralThresholdPercent;
+    }
+
+    /**
+     * How much darker than its window mean a pixel must be to count as black with
+     * {@link BinarizerType#INTEGRAL_IMAGE}. Defaults to 5.
+     */
+    public void setIntegralThresholdPercent(int integralThresholdPercent) {
+        if (integralThresholdPercent < 0 || integralThresholdPercent >= 100) {
+            throw new IllegalArgumentException("integralThresholdPercent must be in [0, 100): "
+                    + integralThresholdPercent);
+        }
+        this.integralThresholdPercent = integralThresholdPercent;
+    }
+
+    public InversionStrategy getInversionStrategy() {
+        return inversionStrategy;
+    }
+
+    /**
+     * Defaults to {@link InversionStrategy#OFF}.
+     * <p>
+     * 反色（浅色码深色底）识别策略
+     */
+    public void setInversionStrategy(InversionStrategy inversionStrategy) {
+        if (inversionStrategy == null) {
+            throw new IllegalArgumentException("inversionStrategy must not be null");
+        }
+        this.inversionStrategy = inversionStrategy;
+    }
+
+    public int getInversionAfterMisses() {
+        return inversionAfterMisses;
+    }
+
+    /**
+     * Frames in a row without a result before {@link InversionStrategy#ADAPTIVE} tries the
+     * inverted matrix as well. Defaults to 3.
+     */
+    public void setInversionAfterMisses(int inversionAfterMisses) {
+        if (inversionAfterMisses < 0) {
+            throw new IllegalArgumentException("inversionAfterMisses must be >= 0: " + inversionAfterMisses);
+        }
+        this.inversionAfterMisses = inversionAfterMisses;
+    }
+}
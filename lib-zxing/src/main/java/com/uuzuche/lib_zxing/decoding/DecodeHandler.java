@@ -22,38 +22,70 @@ import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
-import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
+import com.google.zxing.LuminanceSource;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 import com.uuzuche.lib_zxing.R;
-import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
 import com.uuzuche.lib_zxing.activity.CaptureFragment;
 import com.uuzuche.lib_zxing.camera.CameraManager;
-
-import java.util.Hashtable;
+import com.uuzuche.lib_zxing.camera.PreviewFrame;
+import com.uuzuche.lib_zxing.camera.ThumbnailRenderer;
 
 public final class DecodeHandler extends Handler {
 
     private static final String TAG = DecodeHandler.class.getSimpleName();
 
     private final CaptureFragment fragment;
-    private final MultiFormatReader multiFormatReader;
+    private final DecodeThreadPool pool;
+    private final int index;
+    private final FrameDecoder frameDecoder;
+    private final MultiFrameDecoder multiFrameDecoder;
 
-    DecodeHandler(CaptureFragment fragment, Hashtable<DecodeHintType, Object> hints) {
-        multiFormatReader = new MultiFormatReader();
-        multiFormatReader.setHints(hints);
+    /**
+     * @param multiFrameDecoder Decodes every code of a frame in continuous mode, null to stop
+     *                          at the first result.
+     */
+    DecodeHandler(CaptureFragment fragment, DecodeThreadPool pool, int index,
+                  FrameDecoder frameDecoder, MultiFrameDecoder multiFrameDecoder) {
         this.fragment = fragment;
+        this.pool = pool;
+        this.index = index;
+        this.frameDecoder = frameDecoder;
+        this.multiFrameDecoder = multiFrameDecoder;
     }
 
     @Override
     public void handleMessage(Message message) {
         if (message.what == R.id.decode) {
-            decode((byte[]) message.obj, message.arg1, message.arg2);
+            PreviewFrame frame = (PreviewFrame) message.obj;
+            try {
+                // Drop a cancel meant for an earlier frame before asking the pool: a cancel
+                // pauses the pool first, so one sent before this point is seen as paused and
+                // one sent after it abandons this frame.
+                clearCancel();
+                if (pool.isPaused()) {
+                    // The scan already succeeded, this frame was handed out too late.
+                    return;
+                }
+                if (multiFrameDecoder != null) {
+                    decodeMultiple(frame);
+                } else {
+                    decode(frame);
+                }
+            } finally {
+                frame.release();
+            }
         } else if (message.what == R.id.quit) {
-            Looper.myLooper().quit();
+            // Frames queued before the quit still run, and are released unread since the pool
+            // is paused. Frames sent afterwards are refused and released by the camera.
+            Looper.myLooper().quitSafely();
+        }
+    }
+
+    private void clearCancel() {
+        if (multiFrameDecoder != null) {
+            multiFrameDecoder.clearCancel();
+        } else {
+            frameDecoder.clearCancel();
         }
     }
 
@@ -61,54 +93,97 @@ public final class DecodeHandler extends Handler {
      * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
      * reuse the same reader objects from one decode to the next.
      *
-     * @param data   The YUV preview frame.
-     * @param width  The width of the preview frame.
-     * @param height The height of the preview frame.
+     * @param frame The luma of the preview frame.
      */
-    private void decode(byte[] data, int width, int height) {
+    private void decode(PreviewFrame frame) {
+        int generation = pool.getGeneration();
         try{
             long start = System.currentTimeMillis();
-            Result rawResult = null;
-
-            //modify here
-            byte[] rotatedData = new byte[data.length];
-            Log.i(TAG, "decode: data.length:"+data.length);
-            Log.i(TAG, "decode: rotatedData.length:"+data.length);
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++)
-                    rotatedData[x * height + height - y - 1] = data[x + y * width];
-            }
-            int tmp = width; // Here we are swapping, that's the difference to #11
-            width = height;
-            height = tmp;
-            PlanarYUVLuminanceSource source = CameraManager.get().buildLuminanceSource(rotatedData, width, height);
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            try {
-                rawResult = multiFormatReader.decodeWithState(bitmap);
-            } catch (ReaderException re) {
-                // continue
-            } finally {
-                multiFormatReader.reset();
-            }
 
+            LuminanceSource source = CameraManager.get().buildLuminanceSource(frame);
+            Result rawResult = frameDecoder.decode(source);
+            pool.getScheduler().onDecodeFinished(frameDecoder.getLastDecodeNanos());
+
+            ResultDeduplicator deduplicator = pool.getDeduplicator();
+            if (rawResult != null && deduplicator != null && deduplicator.isRepeat(rawResult)) {
+                // Reported a moment ago, keep scanning as if nothing was found.
+                sendDecodeFailed(generation);
+                return;
+            }
             if (rawResult != null) {
+                if (!pool.claimResult(generation)) {
+                    // Another worker already reported this scan.
+                    return;
+                }
+                if (deduplicator != null) {
+                    deduplicator.record(rawResult);
+                }
                 long end = System.currentTimeMillis();
-                Log.d(TAG, "Found barcode (" + (end - start) + " ms):\n" + rawResult.toString());
+                Log.d(TAG, "Found barcode (" + (end - start) + " ms) on worker " + index + ":\n"
+                        + rawResult.toString());
+                Log.d(TAG, "Worker " + index + " " + frameDecoder.getStats());
                 Message message = Message.obtain(fragment.getHandler(), R.id.decode_succeeded, rawResult);
-                Bundle bundle = new Bundle();
-                bundle.putParcelable(DecodeThread.BARCODE_BITMAP, source.renderCroppedGreyscaleBitmap());
-                message.setData(bundle);
+                DecodeConfig config = pool.getConfig();
+                if (config.isThumbnailEnabled()) {
+                    // Only render when someone asked for it, it sits between decode and callback.
+                    Bundle bundle = new Bundle();
+                    bundle.putParcelable(DecodeThread.BARCODE_BITMAP, ThumbnailRenderer.render(
+                            source, config.getThumbnailDownscale(), config.isThumbnailAlpha8()));
+                    message.setData(bundle);
+                }
                 //Log.d(TAG, "Sending decode succeeded message...");
                 message.sendToTarget();
             } else {
-                Message message = Message.obtain(fragment.getHandler(), R.id.decode_failed);
-                message.sendToTarget();
+                if (frameDecoder.isLastDecodeComplete()) {
+                    // Let the camera skip frames that show the same scene again. A frame that
+                    // was skipped or cut short proves nothing about the scene.
+                    CameraManager.get().getDuplicateFrameFilter().onDecodeFailed(frame.getSignature());
+                }
+                sendDecodeFailed(generation);
             }
         }catch (Exception e){
-            Message message = Message.obtain(fragment.getHandler(), R.id.decode_failed);
-            message.sendToTarget();
+            sendDecodeFailed(generation);
         }
 
     }
 
+    /**
+     * Continuous mode: reports every code of the frame without ending the scan.
+     */
+    private void decodeMultiple(PreviewFrame frame) {
+        int generation = pool.getGeneration();
+        try {
+            LuminanceSource source = CameraManager.get().buildLuminanceSource(frame);
+            Result[] results = multiFrameDecoder.decode(source);
+            pool.getScheduler().onDecodeFinished(multiFrameDecoder.getLastDecodeNanos());
+            ResultDeduplicator deduplicator = pool.getDeduplicator();
+            if (results.length > 0 && deduplicator != null) {
+                // Recorded by CaptureActivityHandler once they reach the callback.
+                results = deduplicator.filter(results);
+                if (results.length == 0) {
+                    // Only codes that were already reported.
+                    sendDecodeFailed(generation);
+                    return;
+                }
+            }
+            if (results.length > 0) {
+                Message message = Message.obtain(fragment.getHandler(), R.id.decode_multiple,
+                        index, generation, results);
+                message.sendToTarget();
+            } else {
+                if (multiFrameDecoder.isLastDecodeComplete()) {
+                    CameraManager.get().getDuplicateFrameFilter().onDecodeFailed(frame.getSignature());
+                }
+                sendDecodeFailed(generation);
+            }
+        } catch (Exception e) {
+            sendDecodeFailed(generation);
+        }
+    }
+
+    private void sendDecodeFailed(int generation) {
+        Message message = Message.obtain(fragment.getHandler(), R.id.decode_failed, index, generation);
+        message.sendToTarget();
+    }
+
 }
@@ -0,0 +1,347 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for one decode worker. Written by the worker thread and safe to read from any thread.
+ * <p>
+ * 单个解码线程的统计数据
+ */
+public final class DecodeStats {
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong codes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong budgetOverruns = new AtomicLong();
+    private final AtomicLong cancellations = new AtomicLong();
+    private final AtomicLong regionFrames = new AtomicLong();
+    private final AtomicLong regionHits = new AtomicLong();
+    private final AtomicLong invertedAttempts = new AtomicLong();
+    private final AtomicLong invertedHits = new AtomicLong();
+    private final AtomicLongArray tierAttempts;
+    private final AtomicLongArray tierHits;
+    private final AtomicLongArray tierNanos;
+    private final AtomicLongArray levelAttempts;
+    private final AtomicLongArray levelHits;
+    private final AtomicLongArray levelNanos;
+
+    public DecodeStats() {
+        this(1);
+    }
+
+    /**
+     * @param tierCount Number of tiers of the {@link DecodeCascade} the worker runs.
+     */
+    public DecodeStats(int tierCount) {
+        this(tierCount, 1);
+    }
+
+    /**
+     * @param tierCount  Number of tiers of the {@link DecodeCascade} the worker runs.
+     * @param levelCount Number of pyramid levels, see {@link DecodeConfig#setPyramidLevels}.
+     */
+    public DecodeStats(int tierCount, int levelCount) {
+        tierAttempts = new AtomicLongArray(tierCount);
+        tierHits = new AtomicLongArray(tierCount);
+        tierNanos = new AtomicLongArray(tierCount);
+        levelAttempts = new AtomicLongArray(levelCount);
+        levelHits = new AtomicLongArray(levelCount);
+        levelNanos = new AtomicLongArray(levelCount);
+    }
+
+    void onFrameDecoded(long elapsedNanos, boolean success) {
+        frames.incrementAndGet();
+        decodeNanos.addAndGet(elapsedNanos);
+        if (success) {
+            successes.incrementAndGet();
+        }
+    }
+
+    void onCodesDecoded(int count) {
+        codes.addAndGet(count);
+    }
+
+    void onTierDecoded(int tier, long elapsedNanos, boolean success) {
+        tierAttempts.incrementAndGet(tier);
+        tierNanos.addAndGet(tier, elapsedNanos);
+        if (success) {
+            tierHits.incrementAndGet(tier);
+        }
+    }
+
+    void onLevelDecoded(int level, long elapsedNanos, boolean success) {
+        if (level >= levelAttempts.length()) {
+            // Stats sized for fewer levels than the decoder runs.
+            return;
+        }
+        levelAttempts.incrementAndGet(level);
+        levelNanos.addAndGet(level, elapsedNanos);
+        if (success) {
+            levelHits.incrementAndGet(level);
+        }
+    }
+
+    void onFrameSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    void onRegionDecoded(boolean success) {
+        regionFrames.incrementAndGet();
+        if (success) {
+            regionHits.incrementAndGet();
+        }
+    }
+
+    void onInvertedDecoded(boolean success) {
+        invertedAttempts.incrementAndGet();
+        if (success) {
+            invertedHits.incrementAndGet();
+        }
+    }
+
+    void onBudgetExceeded() {
+        budgetOverruns.incrementAndGet();
+    }
+
+    void onDecodeCancelled() {
+        cancellations.incrementAndGet();
+    }
+
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    public long getSuccessCount() {
+        return successes.get();
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.get();
+    }
+
+    public double getAverageDecodeMillis() {
+        long count = frames.get();
+        return count == 0 ? 0 : decodeNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return frames decoded per second of time spent decoding, i.e. the throughput this worker
+     * would sustain if it were never idle.
+     */
+    public double getFramesPerSecond() {
+        long nanos = decodeNanos.get();
+        return nanos == 0 ? 0 : frames.get() * 1e9 / nanos;
+    }
+
+    /**
+     * @return Barcodes found, counting every code of a frame in continuous mode.
+     */
+    public long getCodeCount() {
+        return codes.get();
+    }
+
+    /**
+     * @return codes found per second of time spent decoding, see {@link #getFramesPerSecond()}.
+     */
+    public double getCodesPerSecond() {
+        long nanos = decodeNanos.get();
+        return nanos == 0 ? 0 : codes.get() * 1e9 / nanos;
+    }
+
+    /**
+     * @return Frames not decoded because they were too blurred, see {@link SharpnessGate}.
+     * They are not included in {@link #getFrameCount()}.
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * @return The share of frames handed to this worker that were skipped as blurred.
+     */
+    public double getSkipRatio() {
+        long skippedFrames = skipped.get();
+        long total = skippedFrames + frames.get();
+        return total == 0 ? 0 : (double) skippedFrames / total;
+    }
+
+    /**
+     * @return Frames abandoned because they took longer than the frame budget.
+     */
+    public long getBudgetOverrunCount() {
+        return budgetOverruns.get();
+    }
+
+    /**
+     * @return Frames abandoned because another worker had already found the barcode.
+     */
+    public long getCancelledCount() {
+        return cancellations.get();
+    }
+
+    /**
+     * @return Frames decoded on a region narrowed by the {@link RoiTracker}.
+     */
+    public long getRegionFrameCount() {
+        return regionFrames.get();
+    }
+
+    public long getRegionHitCount() {
+        return regionHits.get();
+    }
+
+    /**
+     * @return Times the inverted matrix of a frame was decoded, see
+     * {@link DecodeConfig#setInversionStrategy}.
+     */
+    public long getInvertedAttemptCount() {
+        return invertedAttempts.get();
+    }
+
+    /**
+     * @return Light-on-dark codes found.
+     */
+    public long getInvertedHitCount() {
+        return invertedHits.get();
+    }
+
+    public double getInvertedHitRate() {
+        long attempts = invertedAttempts.get();
+        return attempts == 0 ? 0 : (double) invertedHits.get() / attempts;
+    }
+
+    public int getTierCount() {
+        return tierAttempts.length();
+    }
+
+    /**
+     * @return How many frames were tried with {@code tier}.
+     */
+    public long getTierAttempts(int tier) {
+        return tierAttempts.get(tier);
+    }
+
+    public long getTierHits(int tier) {
+        return tierHits.get(tier);
+    }
+
+    /**
+     * @return The share of attempts of {@code tier} that found a barcode.
+     */
+    public double getTierHitRate(int tier) {
+        long attempts = tierAttempts.get(tier);
+        return attempts == 0 ? 0 : (double) tierHits.get(tier) / attempts;
+    }
+
+    /**
+     * @return Total time spent in {@code tier}.
+     */
+    public double getTierMillis(int tier) {
+        return tierNanos.get(tier) / 1e6;
+    }
+
+    public int getLevelCount() {
+        return levelAttempts.length();
+    }
+
+    /**
+     * @return How many times pyramid {@code level} was decoded, 0 being full resolution.
+     */
+    public long getLevelAttempts(int level) {
+        return levelAttempts.get(level);
+    }
+
+    public long getLevelHits(int level) {
+        return levelHits.get(level);
+    }
+
+    public double getLevelHitRate(int level) {
+        long attempts = levelAttempts.get(level);
+        return attempts == 0 ? 0 : (double) levelHits.get(level) / attempts;
+    }
+
+    /**
+     * @return Average time of one decode of pyramid {@code level}.
+     */
+    public double getLevelAverageMillis(int level) {
+        long attempts = levelAttempts.get(level);
+        return attempts == 0 ? 0 : levelNanos.get(level) / 1e6 / attempts;
+    }
+
+    public void reset() {
+        frames.set(0);
+        successes.set(0);
+        codes.set(0);
+        decodeNanos.set(0);
+        skipped.set(0);
+        budgetOverruns.set(0);
+        cancellations.set(0);
+        regionFrames.set(0);
+        regionHits.set(0);
+        invertedAttempts.set(0);
+        invertedHits.set(0);
+        for (int i = 0; i < tierAttempts.length(); i++) {
+            tierAttempts.set(i, 0);
+            tierHits.set(i, 0);
+            tierNanos.set(i, 0);
+        }
+        for (int i = 0; i < levelAttempts.length(); i++) {
+            levelAttempts.set(i, 0);
+            levelHits.set(i, 0);
+            levelNanos.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeStats{" +
+                "frames=" + frames.get() +
+                ", successes=" + successes.get() +
+                ", avgMs=" + String.format(Locale.US, "%.2f", getAverageDecodeMillis()) +
+                ", fps=" + String.format(Locale.US, "%.1f", getFramesPerSecond()) +
+                (codes.get() > 0 ? ", codes=" + codes.get() : "") +
+                ", skipped=" + skipped.get() +
+                ", overruns=" + budgetOverruns.get() +
+                ", cancelled=" + cancellations.get() +
+                (regionFrames.get() > 0 ? ", roi=" + regionHits.get() + "/" + regionFrames.get() : "") +
+                (invertedAttempts.get() > 0
+                        ? ", inverted=" + invertedHits.get() + "/" + invertedAttempts.get() : "") +
+                tiersToString() +
+                levelsToString() +
+                '}';
+    }
+
+    private String tiersToString() {
+        if (tierAttempts.length() < 2) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(", tiers=[");
+        for (int i = 0; i < tierAttempts.length(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(tierHits.get(i)).append('/').append(tierAttempts.get(i))
+                    .append(String.format(Locale.US, " %.0fms", getTierMillis(i)));
+        }
+        return builder.append(']').toString();
+    }
+
+    private String levelsToString() {
+        if (levelAttempts.length() < 2) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(", levels=[");
+        for (int i = 0; i < levelAttempts.length(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(levelHits.get(i)).append('/').append(levelAttempts.get(i))
+                    .append(String.format(Locale.US, " %.2fms", getLevelAverageMillis(i)));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -36,25 +36,40 @@ final class DecodeThread extends Thread {
 
     public static final String BARCODE_BITMAP = "barcode_bitmap";
     private final CaptureFragment fragment;
+    private final DecodeThreadPool pool;
+    private final int index;
     private final Hashtable<DecodeHintType, Object> hints;
+    private final DecodeStats stats;
     private Handler handler;
+    private volatile FrameDecoder frameDecoder;
+    private volatile MultiFrameDecoder multiFrameDecoder;
     private final CountDownLatch handlerInitLatch;
 
     DecodeThread(CaptureFragment fragment,
+                 DecodeThreadPool pool,
+                 int index,
                  Vector<BarcodeFormat> decodeFormats,
                  String characterSet,
                  ResultPointCallback resultPointCallback) {
+        super("DecodeThread-" + index);
 
         this.fragment = fragment;
+        this.pool = pool;
+        this.index = index;
+        DecodeConfig config = pool.getConfig();
+        stats = new DecodeStats(config.getCascade().getTierCount(), config.getPyramidLevels());
         handlerInitLatch = new CountDownLatch(1);
 
         hints = new Hashtable<DecodeHintType, Object>(3);
 
+        // Every worker gets its own copy so no reader ever shares mutable hint state.
         if (decodeFormats == null || decodeFormats.isEmpty()) {
             decodeFormats = new Vector<BarcodeFormat>();
             decodeFormats.addAll(DecodeFormatManager.ONE_D_FORMATS);
             decodeFormats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
             decodeFormats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+        } else {
+            decodeFormats = new Vector<BarcodeFormat>(decodeFormats);
         }
 
         hints.put(DecodeHintType.POSSIBLE_FORMATS, decodeFormats);
@@ -75,10 +90,34 @@ final class DecodeThread extends Thread {
         return handler;
     }
 
+    DecodeStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Abandons the frame this worker is decoding, if any.
+     */
+    void cancelDecode() {
+        FrameDecoder decoder = frameDecoder;
+        if (decoder != null) {
+            decoder.cancel();
+        }
+        MultiFrameDecoder multiDecoder = multiFrameDecoder;
+        if (multiDecoder != null) {
+            multiDecoder.cancel();
+        }
+    }
+
     @Override
     public void run() {
         Looper.prepare();
-        handler = new DecodeHandler(fragment,hints);
+        DecodeConfig config = pool.getConfig();
+        frameDecoder = new FrameDecoder(hints, config, pool.getPrioritizer(),
+                pool.getSharpnessGate(), pool.getRoiTracker(), stats);
+        if (config.isContinuousScan()) {
+            multiFrameDecoder = new MultiFrameDecoder(hints, config, stats);
+        }
+        handler = new DecodeHandler(fragment, pool, index, frameDecoder, multiFrameDecoder);
         handlerInitLatch.countDown();
         Looper.loop();
     }
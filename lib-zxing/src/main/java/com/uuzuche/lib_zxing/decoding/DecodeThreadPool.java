@@ -0,0 +1,167 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import android.os.Handler;
+import android.os.Message;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.ResultPointCallback;
+import com.uuzuche.lib_zxing.R;
+import com.uuzuche.lib_zxing.activity.CaptureFragment;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of {@link DecodeThread}s, each with its own reader and hints. Frames are dealt to
+ * the workers in turn, and the first worker to find a barcode wins: {@link #cancelPending()}
+ * then skips the frames not yet picked up and abandons the ones still being decoded at their
+ * next {@link DecodeBudget} check, and any result that still comes in for the same scan is
+ * discarded.
+ * <p>
+ * 多线程解码池
+ */
+final class DecodeThreadPool {
+
+    private final DecodeThread[] workers;
+    private final DecodeConfig config;
+    private final FrameScheduler scheduler;
+    private final FormatPrioritizer prioritizer;
+    private final SharpnessGate sharpnessGate;
+    private final RoiTracker roiTracker;
+    private final ResultDeduplicator deduplicator;
+    /**
+     * Bumped once per successful scan. Work started under an older generation is stale.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    /**
+     * Set between a successful scan and the next restart. Frames that reach a worker meanwhile
+     * are returned to the pool without being decoded.
+     */
+    private volatile boolean paused;
+
+    DecodeThreadPool(CaptureFragment fragment,
+                     DecodeConfig config,
+                     FrameScheduler scheduler,
+                     Vector<BarcodeFormat> decodeFormats,
+                     String characterSet,
+                     ResultPointCallback resultPointCallback) {
+        this.config = config;
+        this.scheduler = scheduler;
+        prioritizer = config.isFormatPrioritization() ? new FormatPrioritizer() : null;
+        sharpnessGate = config.isSharpnessGate() ? new SharpnessGate() : null;
+        roiTracker = config.isRoiTracking() ? new RoiTracker() : null;
+        deduplicator = config.getDeduplicationTtlMillis() > 0
+                ? new ResultDeduplicator(config.getDeduplicationCapacity(),
+                config.getDeduplicationTtlMillis(), config.getDeduplicationEviction())
+                : null;
+        workers = new DecodeThread[config.getWorkerCount()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new DecodeThread(fragment, this, i, decodeFormats, characterSet,
+                    resultPointCallback);
+        }
+    }
+
+    void start() {
+        for (DecodeThread worker : workers) {
+            worker.start();
+        }
+    }
+
+    int size() {
+        return workers.length;
+    }
+
+    Handler getHandler(int index) {
+        return workers[index].getHandler();
+    }
+
+    DecodeStats getStats(int index) {
+        return workers[index].getStats();
+    }
+
+    DecodeConfig getConfig() {
+        return config;
+    }
+
+    FrameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return The prioritizer shared by all workers, null if prioritization is off.
+     */
+    FormatPrioritizer getPrioritizer() {
+        return prioritizer;
+    }
+
+    /**
+     * @return The gate shared by all workers, null if blurred frames are decoded too.
+     */
+    SharpnessGate getSharpnessGate() {
+        return sharpnessGate;
+    }
+
+    /**
+     * @return The region tracker shared by all workers, null if every frame is decoded whole.
+     */
+    RoiTracker getRoiTracker() {
+        return roiTracker;
+    }
+
+    /**
+     * @return The deduplication shared by all workers, null if every result is reported.
+     */
+    ResultDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Claims the result of the current scan for one worker.
+     *
+     * @param generation The generation the worker started decoding in.
+     * @return true if this is the first result of that generation, false if another worker
+     * already reported one and this result must be dropped.
+     */
+    boolean claimResult(int generation) {
+        return this.generation.compareAndSet(generation, generation + 1);
+    }
+
+    /**
+     * Skips frames that were handed out but not yet picked up by a worker, and abandons the
+     * ones still being decoded.
+     */
+    void cancelPending() {
+        paused = true;
+        for (DecodeThread worker : workers) {
+            worker.cancelDecode();
+        }
+    }
+
+    void resume() {
+        paused = false;
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    void quitSynchronously() {
+        // Queued frames are released without being decoded.
+        cancelPending();
+        for (DecodeThread worker : workers) {
+            Message quit = Message.obtain(worker.getHandler(), R.id.quit);
+            quit.sendToTarget();
+        }
+        for (DecodeThread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                // continue
+            }
+        }
+    }
+}
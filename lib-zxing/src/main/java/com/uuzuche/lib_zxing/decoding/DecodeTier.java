@@ -0,0 +1,55 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Collection;
+import java.util.Vector;
+
+/**
+ * One pass of a {@link DecodeCascade}: which formats to look for, at what resolution, and
+ * whether to spend the extra time of {@code TRY_HARDER}.
+ * <p>
+ * 级联解码中的一级
+ */
+public final class DecodeTier {
+
+    private final Vector<BarcodeFormat> formats;
+    private final int downscale;
+    private final boolean tryHarder;
+
+    /**
+     * @param formats   Formats to decode, narrowed to the formats the scan was started with.
+     *                  Null for all of them.
+     * @param downscale Shrink the crop by this factor before decoding, 1 for full resolution.
+     * @param tryHarder Whether to set {@code DecodeHintType.TRY_HARDER}.
+     */
+    public DecodeTier(Collection<BarcodeFormat> formats, int downscale, boolean tryHarder) {
+        if (downscale < 1) {
+            throw new IllegalArgumentException("downscale must be >= 1: " + downscale);
+        }
+        this.formats = formats == null ? null : new Vector<BarcodeFormat>(formats);
+        this.downscale = downscale;
+        this.tryHarder = tryHarder;
+    }
+
+    /**
+     * @return The formats of this tier, or null for all formats of the scan.
+     */
+    public Vector<BarcodeFormat> getFormats() {
+        return formats == null ? null : new Vector<BarcodeFormat>(formats);
+    }
+
+    public int getDownscale() {
+        return downscale;
+    }
+
+    public boolean isTryHarder() {
+        return tryHarder;
+    }
+
+    @Override
+    public String toString() {
+        return (formats == null ? "ALL" : formats.toString()) + "/" + downscale + "x"
+                + (tryHarder ? "/TRY_HARDER" : "");
+    }
+}
@@ -0,0 +1,160 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Learns which barcode families a session actually scans and orders the readers accordingly.
+ * Families are tried most frequent first. Once enough codes have been seen, a family that
+ * makes up only a tiny share of them is demoted: it is skipped, except on every
+ * {@link #REPROBE_INTERVAL}-th frame, when it is tried after all others so a change in what
+ * is being scanned is still noticed.
+ * <p>
+ * Shared by every decode worker of a scan, so all of them learn from each hit.
+ * <p>
+ * 根据最近的扫码结果调整条码格式的解码顺序
+ */
+public final class FormatPrioritizer {
+
+    /**
+     * Groups of formats that are decoded by the same reader.
+     */
+    public enum Family {
+        ONE_D, QR_CODE, DATA_MATRIX, AZTEC, PDF_417, MAXICODE;
+
+        public static Family of(BarcodeFormat format) {
+            switch (format) {
+                case QR_CODE:
+                    return QR_CODE;
+                case DATA_MATRIX:
+                    return DATA_MATRIX;
+                case AZTEC:
+                    return AZTEC;
+                case PDF_417:
+                    return PDF_417;
+                case MAXICODE:
+                    return MAXICODE;
+                default:
+                    return ONE_D;
+            }
+        }
+    }
+
+    /**
+     * Weight kept by older hits each time a new one is recorded, so about the last 50 codes
+     * decide the order.
+     */
+    private static final double DECAY = 0.98;
+    /**
+     * Codes to see before any family is demoted.
+     */
+    private static final int MIN_HITS_TO_DEMOTE = 20;
+    /**
+     * Families below this share of recent hits are demoted.
+     */
+    private static final double DEMOTE_SHARE = 0.02;
+    static final int REPROBE_INTERVAL = 16;
+
+    private final double[] scores = new double[Family.values().length];
+    private final long[] hits = new long[Family.values().length];
+    private long totalHits;
+    private long frames;
+    private long reprobes;
+    private long reprobeHits;
+
+    /**
+     * Picks the order for the next frame.
+     *
+     * @param enabled Families the reader can decode, in their default order.
+     * @return The families to try, in order. Demoted families are left out except on re-probe
+     * frames.
+     */
+    public synchronized Family[] nextOrder(Family[] enabled) {
+        frames++;
+        Family[] order = enabled.clone();
+        // Stable, so families without hits keep their default order.
+        Arrays.sort(order, new Comparator<Family>() {
+            @Override
+            public int compare(Family a, Family b) {
+                return Double.compare(scores[b.ordinal()], scores[a.ordinal()]);
+            }
+        });
+        if (totalHits < MIN_HITS_TO_DEMOTE) {
+            return order;
+        }
+        boolean reprobe = frames % REPROBE_INTERVAL == 0;
+        if (reprobe) {
+            reprobes++;
+            return order;
+        }
+        List<Family> promoted = new ArrayList<Family>(order.length);
+        for (Family family : order) {
+            if (!isDemoted(family)) {
+                promoted.add(family);
+            }
+        }
+        return promoted.toArray(new Family[promoted.size()]);
+    }
+
+    /**
+     * Records a decoded code.
+     */
+    public synchronized void recordHit(BarcodeFormat format) {
+        Family family = Family.of(format);
+        if (totalHits >= MIN_HITS_TO_DEMOTE && isDemoted(family)) {
+            reprobeHits++;
+        }
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] *= DECAY;
+        }
+        scores[family.ordinal()] += 1;
+        hits[family.ordinal()]++;
+        totalHits++;
+    }
+
+    private boolean isDemoted(Family family) {
+        double total = 0;
+        for (double score : scores) {
+            total += score;
+        }
+        return scores[family.ordinal()] < total * DEMOTE_SHARE;
+    }
+
+    public synchronized boolean isDemoted(BarcodeFormat format) {
+        return totalHits >= MIN_HITS_TO_DEMOTE && isDemoted(Family.of(format));
+    }
+
+    public synchronized long getHits(Family family) {
+        return hits[family.ordinal()];
+    }
+
+    /**
+     * @return Frames on which demoted families were tried again.
+     */
+    public synchronized long getReprobeCount() {
+        return reprobes;
+    }
+
+    /**
+     * @return Codes of a demoted family, found on a re-probe frame.
+     */
+    public synchronized long getReprobeHitCount() {
+        return reprobeHits;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("FormatPrioritizer{");
+        for (Family family : Family.values()) {
+            builder.append(family).append('=')
+                    .append(String.format(Locale.US, "%.1f", scores[family.ordinal()])).append(", ");
+        }
+        return builder.append("reprobes=").append(reprobes)
+                .append(", reprobeHits=").append(reprobeHits).append('}').toString();
+    }
+}
@@ -0,0 +1,459 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.HybridBinarizer;
+import com.uuzuche.lib_zxing.camera.DownscaledLuminanceSource;
+import com.uuzuche.lib_zxing.camera.LuminancePyramid;
+
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Decodes luminance sources with readers owned by a single worker, one per tier of its
+ * {@link DecodeCascade}. Kept free of Android classes so the decode path can be exercised and
+ * benchmarked on the JVM.
+ * <p>
+ * 单个解码线程使用的解码器，不依赖Android类
+ */
+public final class FrameDecoder {
+
+    private final DecodeCascade cascade;
+    /**
+     * One reader per tier, null for a tier none of whose formats are enabled.
+     */
+    private final Reader[] readers;
+    private final TierResultPointCallback[] callbacks;
+    private final DecodeStats stats;
+    private final DecodeBudget budget;
+    private final int pyramidLevels;
+    private final SharpnessGate sharpnessGate;
+    private final RoiTracker roiTracker;
+    /**
+     * Possible result points of the frame being decoded, for the {@link RoiTracker}.
+     */
+    private final RoiTracker.Bounds points;
+    private final DecodeConfig.BinarizerType binarizerType;
+    private final int integralWindowSize;
+    private final int integralThresholdPercent;
+    private final ReusableHybridBinarizer.Buffers binarizerBuffers =
+            new ReusableHybridBinarizer.Buffers();
+    private final IntegralImageBinarizer.Buffers integralBuffers =
+            new IntegralImageBinarizer.Buffers();
+    private final DecodeConfig.InversionStrategy inversionStrategy;
+    private final int inversionAfterMisses;
+    /**
+     * Whether the frame being decoded also tries the inverted matrix, and tries it first.
+     */
+    private boolean tryInverted;
+    private boolean invertedFirst;
+    private boolean lastHitInverted;
+    private boolean hitInverted;
+    private long frameIndex;
+    private int consecutiveMisses;
+    private long lastDecodeNanos;
+    private boolean lastDecodeComplete;
+
+    /**
+     * @param config        Supplies the cascade, frame budget, pyramid levels, binarizer and
+     *                      inversion settings.
+     * @param prioritizer   Orders the formats by scan history, null for the fixed order of
+     *                      {@code MultiFormatReader}.
+     * @param sharpnessGate Skips blurred frames before they are decoded, null to decode every
+     *                      frame.
+     * @param roiTracker    Narrows the decoded area to where recent frames found possible
+     *                      result points, null to always decode the whole source.
+     */
+    public FrameDecoder(Hashtable<DecodeHintType, Object> hints, DecodeConfig config,
+                        FormatPrioritizer prioritizer, SharpnessGate sharpnessGate,
+                        RoiTracker roiTracker, DecodeStats stats) {
+        this.sharpnessGate = sharpnessGate;
+        this.roiTracker = roiTracker;
+        points = roiTracker != null ? new RoiTracker.Bounds() : null;
+        this.cascade = config.getCascade();
+        this.stats = stats;
+        budget = new DecodeBudget(config.getFrameBudgetMillis() * 1000000L);
+        pyramidLevels = config.getPyramidLevels();
+        binarizerType = config.getBinarizerType();
+        integralWindowSize = config.getIntegralWindowSize();
+        integralThresholdPercent = config.getIntegralThresholdPercent();
+        inversionStrategy = config.getInversionStrategy();
+        inversionAfterMisses = config.getInversionAfterMisses();
+        readers = new Reader[cascade.getTierCount()];
+        callbacks = new TierResultPointCallback[cascade.getTierCount()];
+        for (int i = 0; i < readers.length; i++) {
+            Hashtable<DecodeHintType, Object> tierHints = tierHints(hints, cascade.getTier(i));
+            if (tierHints == null) {
+                continue;
+            }
+            // Finder pattern search reports every candidate, which makes it a good place to
+            // check the budget while a 2D detector is running.
+            callbacks[i] = new TierResultPointCallback(
+                    (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK),
+                    budget, points);
+            tierHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, callbacks[i]);
+            if (prioritizer != null) {
+                readers[i] = new PrioritizedReader(tierHints, prioritizer);
+            } else {
+                MultiFormatReader reader = new MultiFormatReader();
+                reader.setHints(tierHints);
+                readers[i] = reader;
+            }
+        }
+    }
+
+    /**
+     * @return The hints for one tier, or null if the tier has no format left to decode.
+     */
+    @SuppressWarnings("unchecked")
+    private static Hashtable<DecodeHintType, Object> tierHints(Hashtable<DecodeHintType, Object> hints,
+                                                              DecodeTier tier) {
+        Hashtable<DecodeHintType, Object> tierHints = new Hashtable<DecodeHintType, Object>(hints);
+        Vector<BarcodeFormat> formats = tier.getFormats();
+        if (formats != null) {
+            Collection<BarcodeFormat> enabled =
+                    (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+            if (enabled != null) {
+                formats.retainAll(enabled);
+            }
+            if (formats.isEmpty()) {
+                return null;
+            }
+            tierHints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        }
+        if (tier.isTryHarder()) {
+            tierHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        return tierHints;
+    }
+
+    /**
+     * Binarizes and decodes one frame, escalating through the cascade while frames keep
+     * failing. Gives up once the frame budget is spent or {@link #cancel()} is called.
+     *
+     * @param source The cropped luminance of the frame.
+     * @return The decoded result, or null if nothing was found. Its points are in the
+     * coordinates of {@code source}, even when only a region of it was decoded.
+     */
+    public Result decode(LuminanceSource source) {
+        long start = System.nanoTime();
+        lastDecodeComplete = false;
+        if (sharpnessGate != null && !sharpnessGate.accept(source)) {
+            lastDecodeNanos = System.nanoTime() - start;
+            stats.onFrameSkipped();
+            return null;
+        }
+        Result rawResult = null;
+        int tiers = cascade.tiersToTry(consecutiveMisses);
+        int[] region = null;
+        if (roiTracker != null) {
+            points.clear();
+            if (source.isCropSupported()) {
+                region = roiTracker.getRegion(source.getWidth(), source.getHeight());
+            }
+        }
+        LuminanceSource decoded = source;
+        if (region != null) {
+            decoded = source.crop(region[0], region[1], region[2], region[3]);
+        }
+        for (TierResultPointCallback callback : callbacks) {
+            if (callback != null) {
+                callback.offsetX = region != null ? region[0] : 0;
+                callback.offsetY = region != null ? region[1] : 0;
+            }
+        }
+        chooseInversion();
+        hitInverted = false;
+        budget.start();
+        LuminanceSource budgeted = new BudgetedLuminanceSource(decoded, budget);
+        try {
+            for (int i = 0; i < tiers && rawResult == null; i++) {
+                budget.check();
+                rawResult = decodeTier(i, budgeted);
+            }
+            // A frame that left out a tier or an inverted attempt a later frame may still make
+            // does not show the scene holds nothing.
+            lastDecodeComplete = region == null && tiers == cascade.getTierCount()
+                    && (tryInverted || inversionStrategy == DecodeConfig.InversionStrategy.OFF);
+        } catch (DecodeBudget.DecodeAbortedException e) {
+            if (e == DecodeBudget.EXCEEDED) {
+                stats.onBudgetExceeded();
+            } else {
+                stats.onDecodeCancelled();
+            }
+        }
+        if (rawResult != null && region != null) {
+            rawResult = map(rawResult, 1, region[0], region[1]);
+        }
+        if (roiTracker != null) {
+            roiTracker.onFrameDecoded(points, rawResult != null, source.getWidth(), source.getHeight());
+            if (region != null) {
+                stats.onRegionDecoded(rawResult != null);
+            }
+        }
+        consecutiveMisses = rawResult == null ? consecutiveMisses + 1 : 0;
+        if (rawResult != null) {
+            lastHitInverted = hitInverted;
+        }
+        lastDecodeNanos = System.nanoTime() - start;
+        stats.onFrameDecoded(lastDecodeNanos, rawResult != null);
+        return rawResult;
+    }
+
+    private Result decodeTier(int tier, LuminanceSource source) {
+        if (readers[tier] == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        int downscale = cascade.getTier(tier).getDownscale();
+        Result rawResult = null;
+        try {
+            LuminanceSource tierSource = downscale > 1
+                    ? new DownscaledLuminanceSource(source, downscale) : source;
+            if (pyramidLevels > 1) {
+                // Coarsest level first, full resolution last.
+                LuminancePyramid pyramid = new LuminancePyramid(tierSource, pyramidLevels);
+                for (int level = pyramid.getLevelCount() - 1; level >= 0 && rawResult == null; level--) {
+                    long levelStart = System.nanoTime();
+                    LuminanceSource levelSource =
+                            new BudgetedLuminanceSource(pyramid.getLevel(level), budget);
+                    rawResult = decodeLevel(tier, levelSource,
+                            downscale * LuminancePyramid.getFactor(level));
+                    stats.onLevelDecoded(level, System.nanoTime() - levelStart, rawResult != null);
+                }
+            } else {
+                rawResult = decodeLevel(tier, tierSource, downscale);
+            }
+        } catch (IllegalArgumentException e) {
+            // The crop is too small to shrink this far.
+        } finally {
+            stats.onTierDecoded(tier, System.nanoTime() - start, rawResult != null);
+        }
+        return rawResult;
+    }
+
+    /**
+     * Decides whether this frame also looks for light-on-dark codes. {@code ALTERNATE} does so on
+     * every other frame. {@code ADAPTIVE} starts after a run of misses and keeps the inverted
+     * attempt first while the codes found are inverted.
+     */
+    private void chooseInversion() {
+        switch (inversionStrategy) {
+            case ALTERNATE:
+                tryInverted = (frameIndex++ & 1) == 1;
+                invertedFirst = false;
+                break;
+            case ADAPTIVE:
+                invertedFirst = lastHitInverted;
+                tryInverted = invertedFirst || consecutiveMisses >= inversionAfterMisses;
+                break;
+            default:
+                tryInverted = false;
+                invertedFirst = false;
+                break;
+        }
+    }
+
+    /**
+     * @param factor How much smaller {@code source} is than the frame.
+     * @return The result with its points in frame coordinates, or null.
+     */
+    private Result decodeLevel(int tier, LuminanceSource source, int factor) {
+        callbacks[tier].factor = factor;
+        Binarizer binarizer = binarize(source);
+        Result rawResult;
+        if (!tryInverted) {
+            rawResult = decodeBitmap(tier, binarizer);
+        } else if (invertedFirst) {
+            rawResult = decodeInverted(tier, binarizer);
+            if (rawResult == null) {
+                rawResult = decodeBitmap(tier, binarizer);
+            }
+        } else {
+            rawResult = decodeBitmap(tier, binarizer);
+            if (rawResult == null) {
+                rawResult = decodeInverted(tier, binarizer);
+            }
+        }
+        return rawResult != null && factor > 1 ? map(rawResult, factor, 0, 0) : rawResult;
+    }
+
+    /**
+     * Decodes the negative of what {@code binarizer} computed, without binarizing again.
+     */
+    private Result decodeInverted(int tier, Binarizer binarizer) {
+        Result rawResult = decodeBitmap(tier, new InvertedBinarizer(binarizer));
+        stats.onInvertedDecoded(rawResult != null);
+        if (rawResult != null) {
+            hitInverted = true;
+        }
+        return rawResult;
+    }
+
+    private Result decodeBitmap(int tier, Binarizer binarizer) {
+        Reader reader = readers[tier];
+        try {
+            BinaryBitmap bitmap = new BinaryBitmap(binarizer);
+            // decode(BinaryBitmap) would make a MultiFormatReader drop its hints.
+            return reader instanceof MultiFormatReader
+                    ? ((MultiFormatReader) reader).decodeWithState(bitmap) : reader.decode(bitmap);
+        } catch (ReaderException re) {
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private Binarizer binarize(LuminanceSource source) {
+        switch (binarizerType) {
+            case REUSABLE_HYBRID:
+                return new ReusableHybridBinarizer(source, binarizerBuffers);
+            case INTEGRAL_IMAGE:
+                return new IntegralImageBinarizer(source, integralWindowSize, integralThresholdPercent,
+                        integralBuffers);
+            default:
+                return new HybridBinarizer(source);
+        }
+    }
+
+    /**
+     * Maps the points of a result found on a downscaled or cropped source back to the full
+     * source.
+     *
+     * @param left Left edge of the crop within the full source, in full source pixels.
+     * @param top  Top edge of the crop.
+     */
+    private static Result map(Result result, int factor, int left, int top) {
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] scaled = null;
+        if (points != null) {
+            scaled = new ResultPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                scaled[i] = map(points[i], factor, left, top);
+            }
+        }
+        Result scaledResult = new Result(result.getText(), result.getRawBytes(), scaled,
+                result.getBarcodeFormat(), result.getTimestamp());
+        scaledResult.putAllMetadata(result.getResultMetadata());
+        return scaledResult;
+    }
+
+    private static ResultPoint map(ResultPoint point, int factor, int left, int top) {
+        if (point == null) {
+            return null;
+        }
+        if (factor == 1) {
+            return new ResultPoint(point.getX() + left, point.getY() + top);
+        }
+        // Point to the centre of the block the downscaled pixel was averaged from.
+        return new ResultPoint((point.getX() + 0.5f) * factor + left,
+                (point.getY() + 0.5f) * factor + top);
+    }
+
+    /**
+     * Abandons the frame being decoded, or the next one if none is. Safe to call from any
+     * thread; the decoding thread notices at its next budget check.
+     */
+    public void cancel() {
+        budget.cancel();
+    }
+
+    /**
+     * Drops a cancel that has not abandoned a frame yet. Called on the decoding thread.
+     */
+    public void clearCancel() {
+        budget.clearCancel();
+    }
+
+    /**
+     * @return How long the most recent {@link #decode} took.
+     */
+    public long getLastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    /**
+     * @return Whether the most recent {@link #decode} looked at the whole frame with every tier
+     * and, unless inversion is off, the inverted attempt: it was neither skipped as blurred,
+     * cropped to a tracked region, cut short by the cascade or the inversion strategy nor
+     * abandoned by the budget or a cancel. Only such a frame shows that the scene holds nothing
+     * decodable.
+     */
+    public boolean isLastDecodeComplete() {
+        return lastDecodeComplete;
+    }
+
+    public DecodeStats getStats() {
+        return stats;
+    }
+
+    public DecodeCascade getCascade() {
+        return cascade;
+    }
+
+    /**
+     * @return The buffers this decoder's {@link ReusableHybridBinarizer} reuses, e.g. to count
+     * how often they had to grow.
+     */
+    public ReusableHybridBinarizer.Buffers getBinarizerBuffers() {
+        return binarizerBuffers;
+    }
+
+    /**
+     * @return The buffers this decoder's {@link IntegralImageBinarizer} reuses.
+     */
+    public IntegralImageBinarizer.Buffers getIntegralBuffers() {
+        return integralBuffers;
+    }
+
+    /**
+     * Checks the budget on every possible result point, and forwards the point, mapped back to
+     * the full source, to the callback of the scan and to the region tracker.
+     */
+    private static final class TierResultPointCallback implements ResultPointCallback {
+
+        private final ResultPointCallback callback;
+        private final DecodeBudget budget;
+        private final RoiTracker.Bounds points;
+        /**
+         * Scale of the source being decoded, set by the worker before each attempt.
+         */
+        int factor = 1;
+        /**
+         * Origin of the decoded region within the full source, set by the worker per frame.
+         */
+        int offsetX;
+        int offsetY;
+
+        TierResultPointCallback(ResultPointCallback callback, DecodeBudget budget,
+                                RoiTracker.Bounds points) {
+            this.callback = callback;
+            this.budget = budget;
+            this.points = points;
+        }
+
+        @Override
+        public void foundPossibleResultPoint(ResultPoint point) {
+            budget.check();
+            if (factor > 1 || offsetX != 0 || offsetY != 0) {
+                point = map(point, factor, offsetX, offsetY);
+            }
+            if (points != null) {
+                points.add(point.getX(), point.getY());
+            }
+            if (callback != null) {
+                callback.foundPossibleResultPoint(point);
+            }
+        }
+    }
+}
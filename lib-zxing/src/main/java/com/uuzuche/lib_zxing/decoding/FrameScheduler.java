@@ -0,0 +1,229 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import java.util.EnumMap;
+import java.util.Locale;
+
+/**
+ * Decides when an idle decode worker asks the camera for its next frame. Frames that arrive
+ * while no worker is asking are dropped by the camera without being copied, so pacing the
+ * requests is what picks the frames that get decoded.
+ * <p>
+ * The scheduler keeps moving averages of the decode time and of the time between camera frames,
+ * and hands out decode slots to all workers together, so the pace does not depend on the worker
+ * count. Thread safe: frames arrive on the camera thread, decode times are reported by the
+ * workers and slots are handed out on the main thread.
+ * <p>
+ * 解码调度：根据解码耗时和帧率决定何时请求下一帧
+ */
+public final class FrameScheduler {
+
+    public enum Policy {
+        /**
+         * Ask for the next frame as soon as a worker is idle.
+         */
+        MAX_THROUGHPUT,
+        /**
+         * Decode at most {@link DecodeConfig#getTargetFps()} frames per second.
+         */
+        FIXED_FPS,
+        /**
+         * Keep the decoders busy at most a quarter of the time, and never decode two frames
+         * in a row.
+         */
+        POWER_SAVE
+    }
+
+    /**
+     * Weight of the newest sample in the moving averages.
+     */
+    private static final double SMOOTHING = 0.2;
+    private static final double POWER_SAVE_DUTY_CYCLE = 0.25;
+    private static final int POWER_SAVE_MIN_FRAME_GAP = 2;
+
+    private final EnumMap<Policy, PolicyStats> stats = new EnumMap<Policy, PolicyStats>(Policy.class);
+    private Policy policy;
+    private float targetFps;
+
+    private double decodeNanosAverage;
+    private double frameIntervalAverage;
+    private long lastFrameNanos = -1;
+    private long nextSlotNanos;
+
+    public FrameScheduler(DecodeConfig config) {
+        for (Policy p : Policy.values()) {
+            stats.put(p, new PolicyStats());
+        }
+        policy = config.getSchedulerPolicy();
+        targetFps = config.getTargetFps();
+    }
+
+    /**
+     * Switches the policy while scanning. Stats are kept per policy, so policies can be compared
+     * on the same device.
+     */
+    public synchronized void setPolicy(Policy policy, float targetFps) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        if (!(targetFps > 0)) {
+            throw new IllegalArgumentException("targetFps must be > 0: " + targetFps);
+        }
+        this.policy = policy;
+        this.targetFps = targetFps;
+        nextSlotNanos = 0;
+    }
+
+    public synchronized Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Called for every camera frame, whether or not it is decoded.
+     */
+    public synchronized void onFrameArrived(long nowNanos) {
+        if (lastFrameNanos >= 0) {
+            frameIntervalAverage = average(frameIntervalAverage, nowNanos - lastFrameNanos);
+        }
+        lastFrameNanos = nowNanos;
+        stats.get(policy).framesArrived++;
+    }
+
+    /**
+     * Called by a worker after each decode, successful or not.
+     */
+    public synchronized void onDecodeFinished(long decodeNanos) {
+        decodeNanosAverage = average(decodeNanosAverage, decodeNanos);
+        PolicyStats current = stats.get(policy);
+        current.decodes++;
+        current.decodeNanos += decodeNanos;
+    }
+
+    /**
+     * Reserves the next decode slot for an idle worker.
+     *
+     * @return How long the worker should wait before asking the camera for a frame, 0 to ask
+     * right away.
+     */
+    public synchronized long nextRequestDelayNanos(long nowNanos) {
+        PolicyStats current = stats.get(policy);
+        current.requests++;
+        long period = periodNanos();
+        if (period <= 0) {
+            return 0;
+        }
+        long slot = Math.max(nowNanos, nextSlotNanos);
+        nextSlotNanos = slot + period;
+        long delay = slot - nowNanos;
+        if (delay > 0) {
+            current.delayedRequests++;
+            current.delayNanos += delay;
+        }
+        return delay;
+    }
+
+    /**
+     * @return The minimum time between two decode starts under the current policy.
+     */
+    private long periodNanos() {
+        switch (policy) {
+            case FIXED_FPS:
+                return targetFps > 0 ? (long) (1e9 / targetFps) : 0;
+            case POWER_SAVE:
+                return (long) Math.max(decodeNanosAverage / POWER_SAVE_DUTY_CYCLE,
+                        frameIntervalAverage * POWER_SAVE_MIN_FRAME_GAP);
+            default:
+                return 0;
+        }
+    }
+
+    private static double average(double average, long sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    public synchronized double getAverageDecodeMillis() {
+        return decodeNanosAverage / 1e6;
+    }
+
+    public synchronized double getAverageFrameIntervalMillis() {
+        return frameIntervalAverage / 1e6;
+    }
+
+    /**
+     * @return A snapshot of the counters collected while {@code policy} was active.
+     */
+    public synchronized PolicyStats getStats(Policy policy) {
+        return new PolicyStats(stats.get(policy));
+    }
+
+    public synchronized void resetStats() {
+        for (Policy p : Policy.values()) {
+            stats.put(p, new PolicyStats());
+        }
+    }
+
+    /**
+     * Counters for one policy.
+     */
+    public static final class PolicyStats {
+        long framesArrived;
+        long requests;
+        long delayedRequests;
+        long delayNanos;
+        long decodes;
+        long decodeNanos;
+
+        PolicyStats() {
+        }
+
+        PolicyStats(PolicyStats other) {
+            framesArrived = other.framesArrived;
+            requests = other.requests;
+            delayedRequests = other.delayedRequests;
+            delayNanos = other.delayNanos;
+            decodes = other.decodes;
+            decodeNanos = other.decodeNanos;
+        }
+
+        public long getFramesArrived() {
+            return framesArrived;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getDelayedRequests() {
+            return delayedRequests;
+        }
+
+        public long getDecodes() {
+            return decodes;
+        }
+
+        public long getDecodeNanos() {
+            return decodeNanos;
+        }
+
+        /**
+         * @return The share of camera frames that were decoded.
+         */
+        public double getDecodeRatio() {
+            return framesArrived == 0 ? 0 : (double) decodes / framesArrived;
+        }
+
+        public double getAverageDelayMillis() {
+            return delayedRequests == 0 ? 0 : delayNanos / 1e6 / delayedRequests;
+        }
+
+        @Override
+        public String toString() {
+            return "PolicyStats{" +
+                    "frames=" + framesArrived +
+                    ", decodes=" + decodes +
+                    ", decodeRatio=" + String.format(Locale.US, "%.2f", getDecodeRatio()) +
+                    ", delayed=" + delayedRequests + "/" + requests +
+                    ", avgDelayMs=" + String.format(Locale.US, "%.1f", getAverageDelayMillis()) +
+                    '}';
+        }
+    }
+}
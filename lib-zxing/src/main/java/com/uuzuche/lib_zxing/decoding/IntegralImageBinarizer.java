@@ -0,0 +1,223 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive thresholding against the mean of a square window around each pixel, looked up in a
+ * summed-area table. A pixel is black when it is darker than its window mean by more than
+ * {@code thresholdPercent}. Unlike the fixed 8x8 blocks of {@code HybridBinarizer}, the window
+ * slides with the pixel, which copes better with lighting that changes across a code, such as
+ * glare on glossy packaging.
+ * <p>
+ * The table is built in a single pass over the luma rows; each row is thresholded as soon as the
+ * rows its window needs have been summed. Single rows for 1D readers are thresholded against
+ * a window along the row instead, so 1D scans never build the table.
+ * <p>
+ * 基于积分图的自适应阈值二值化
+ */
+public final class IntegralImageBinarizer extends Binarizer {
+
+    /**
+     * Window size relative to the larger side of the image, when none is given.
+     */
+    static final int DEFAULT_WINDOW_DIVISOR = 8;
+    static final int DEFAULT_THRESHOLD_PERCENT = 5;
+    private static final int MIN_WINDOW = 3;
+
+    private final int windowSize;
+    private final int thresholdPercent;
+    private final Buffers buffers;
+    private BitMatrix matrix;
+
+    public IntegralImageBinarizer(LuminanceSource source) {
+        this(source, 0, DEFAULT_THRESHOLD_PERCENT);
+    }
+
+    public IntegralImageBinarizer(LuminanceSource source, int windowSize, int thresholdPercent) {
+        this(source, windowSize, thresholdPercent, new Buffers());
+    }
+
+    /**
+     * @param windowSize       Side of the window in pixels, 0 for an eighth of the larger side
+     *                         of the image.
+     * @param thresholdPercent How much darker than its window mean a pixel must be to be black.
+     * @param buffers          Working memory reused from frame to frame.
+     */
+    public IntegralImageBinarizer(LuminanceSource source, int windowSize, int thresholdPercent,
+                                  Buffers buffers) {
+        super(source);
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("windowSize must be >= 0: " + windowSize);
+        }
+        if (thresholdPercent < 0 || thresholdPercent >= 100) {
+            throw new IllegalArgumentException("thresholdPercent must be in [0, 100): " + thresholdPercent);
+        }
+        this.windowSize = windowSize;
+        this.thresholdPercent = thresholdPercent;
+        this.buffers = buffers;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        if (matrix != null) {
+            return matrix.getRow(y, row);
+        }
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        if (row == null || row.getSize() < width) {
+            row = new BitArray(width);
+        } else {
+            row.clear();
+        }
+        byte[] luminances = buffers.row(width);
+        luminances = source.getRow(y, luminances);
+        int half = halfWindow(width, source.getHeight());
+        // prefix[x] is the sum of the first x pixels of the row.
+        int[] prefix = buffers.integral(width + 1);
+        prefix[0] = 0;
+        for (int x = 0; x < width; x++) {
+            prefix[x + 1] = prefix[x] + (luminances[x] & 0xFF);
+        }
+        int keep = 100 - thresholdPercent;
+        for (int x = 0; x < width; x++) {
+            int left = Math.max(0, x - half);
+            int right = Math.min(width, x + half + 1);
+            long count = right - left;
+            if ((luminances[x] & 0xFF) * count * 100 <= (long) (prefix[right] - prefix[left]) * keep) {
+                row.set(x);
+            }
+        }
+        return row;
+    }
+
+    private int halfWindow(int width, int height) {
+        int window = windowSize > 0 ? windowSize : Math.max(width, height) / DEFAULT_WINDOW_DIVISOR;
+        return Math.max(MIN_WINDOW, window) / 2;
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        if (matrix == null) {
+            matrix = binarize();
+        }
+        return matrix;
+    }
+
+    private BitMatrix binarize() {
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        byte[] luminances = source.getMatrix();
+        int half = halfWindow(width, height);
+        int stride = width + 1;
+        // integral[(y + 1) * stride + x + 1] is the sum of the pixels above and left of (x, y),
+        // inclusive. Row 0 and column 0 are zero.
+        int[] integral = buffers.integral(stride * (height + 1));
+        Arrays.fill(integral, 0, stride, 0);
+        BitMatrix black = new BitMatrix(width, height);
+        int keep = 100 - thresholdPercent;
+
+        for (int y = 0; y < height + half; y++) {
+            if (y < height) {
+                int rowSum = 0;
+                int offset = y * width;
+                int above = y * stride;
+                int current = above + stride;
+                integral[current] = 0;
+                for (int x = 0; x < width; x++) {
+                    rowSum += luminances[offset + x] & 0xFF;
+                    integral[current + x + 1] = integral[above + x + 1] + rowSum;
+                }
+            }
+            int row = y - half;
+            if (row < 0) {
+                continue;
+            }
+            // The rows of the window of this row are summed now.
+            int top = Math.max(0, row - half);
+            int bottom = Math.min(height, row + half + 1);
+            int topOffset = top * stride;
+            int bottomOffset = bottom * stride;
+            int offset = row * width;
+            int rows = bottom - top;
+            // Columns whose window is not clipped by the left or right edge share one count.
+            int interiorStart = Math.min(half, width);
+            int interiorEnd = Math.max(interiorStart, width - half);
+            for (int x = 0; x < interiorStart; x++) {
+                thresholdPixel(luminances, integral, black, x, row, offset, topOffset, bottomOffset,
+                        0, Math.min(width, x + half + 1), rows, keep);
+            }
+            long interiorCount = (long) (2 * half + 1) * rows * 100;
+            for (int x = interiorStart; x < interiorEnd; x++) {
+                int left = x - half;
+                int right = x + half + 1;
+                int sum = integral[bottomOffset + right] - integral[bottomOffset + left]
+                        - integral[topOffset + right] + integral[topOffset + left];
+                if ((luminances[offset + x] & 0xFF) * interiorCount <= (long) sum * keep) {
+                    black.set(x, row);
+                }
+            }
+            for (int x = interiorEnd; x < width; x++) {
+                thresholdPixel(luminances, integral, black, x, row, offset, topOffset, bottomOffset,
+                        Math.max(0, x - half), Math.min(width, x + half + 1), rows, keep);
+            }
+        }
+        return black;
+    }
+
+    private static void thresholdPixel(byte[] luminances, int[] integral, BitMatrix black, int x,
+                                       int row, int offset, int topOffset, int bottomOffset,
+                                       int left, int right, int rows, int keep) {
+        int count = (right - left) * rows;
+        int sum = integral[bottomOffset + right] - integral[bottomOffset + left]
+                - integral[topOffset + right] + integral[topOffset + left];
+        if ((long) (luminances[offset + x] & 0xFF) * count * 100 <= (long) sum * keep) {
+            black.set(x, row);
+        }
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new IntegralImageBinarizer(source, windowSize, thresholdPercent, buffers);
+    }
+
+    /**
+     * Working memory of one worker, grown to the largest frame seen. Not thread safe.
+     */
+    public static final class Buffers {
+
+        private int[] integral = new int[0];
+        private byte[] row = new byte[0];
+        private long allocations;
+
+        int[] integral(int size) {
+            if (integral.length < size) {
+                integral = new int[size];
+                allocations++;
+            }
+            return integral;
+        }
+
+        byte[] row(int size) {
+            if (row.length < size) {
+                row = new byte[size];
+                allocations++;
+            }
+            return row;
+        }
+
+        /**
+         * @return How often a buffer had to be allocated, i.e. the frames that could not reuse
+         * one.
+         */
+        public long getAllocationCount() {
+            return allocations;
+        }
+    }
+}
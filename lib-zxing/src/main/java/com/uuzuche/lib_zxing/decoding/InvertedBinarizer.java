@@ -0,0 +1,69 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * The negative of another binarizer, for light-on-dark codes. The frame is not binarized again:
+ * the matrix the other binarizer already computed is copied and flipped a word at a time, and
+ * rows for 1D readers are flipped after the other binarizer produced them.
+ */
+final class InvertedBinarizer extends Binarizer {
+
+    private final Binarizer binarizer;
+    private BitMatrix matrix;
+
+    /**
+     * @param binarizer Left untouched, so it can still serve the normal attempt.
+     */
+    InvertedBinarizer(Binarizer binarizer) {
+        super(binarizer.getLuminanceSource());
+        this.binarizer = binarizer;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        row = binarizer.getBlackRow(y, row);
+        invert(row);
+        return row;
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        if (matrix == null) {
+            BitMatrix inverted = binarizer.getBlackMatrix().clone();
+            BitArray row = new BitArray(inverted.getWidth());
+            for (int y = 0; y < inverted.getHeight(); y++) {
+                row = inverted.getRow(y, row);
+                invert(row);
+                inverted.setRow(y, row);
+            }
+            matrix = inverted;
+        }
+        return matrix;
+    }
+
+    /**
+     * Flips every bit of {@code row}, leaving the padding past its size clear.
+     */
+    static void invert(BitArray row) {
+        int[] bits = row.getBitArray();
+        int size = row.getSize();
+        int words = (size + 31) / 32;
+        for (int i = 0; i < words; i++) {
+            bits[i] = ~bits[i];
+        }
+        int tail = size & 31;
+        if (tail != 0) {
+            bits[words - 1] &= (1 << tail) - 1;
+        }
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new InvertedBinarizer(binarizer.createBinarizer(source));
+    }
+}
@@ -0,0 +1,249 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Finds every barcode in a frame instead of the first one, for the continuous scan mode. QR
+ * codes go through {@link QRCodeMultiReader}, which tells several codes apart by their finder
+ * patterns; the other formats through a {@link GenericMultipleBarcodeReader} that searches the
+ * rest of the frame around each code it finds. Both share one binarized frame, and with an
+ * inversion strategy also look for light-on-dark codes in its negative.
+ * <p>
+ * 单帧多码解码，用于连续扫码模式
+ */
+public final class MultiFrameDecoder {
+
+    private static final Result[] NO_RESULTS = new Result[0];
+
+    private final QRCodeMultiReader qrReader;
+    private final Hashtable<DecodeHintType, Object> qrHints;
+    private final GenericMultipleBarcodeReader otherReader;
+    private final Hashtable<DecodeHintType, Object> otherHints;
+    private final DecodeStats stats;
+    private final DecodeBudget budget;
+    private final DecodeConfig.BinarizerType binarizerType;
+    private final int integralWindowSize;
+    private final int integralThresholdPercent;
+    private final ReusableHybridBinarizer.Buffers binarizerBuffers =
+            new ReusableHybridBinarizer.Buffers();
+    private final IntegralImageBinarizer.Buffers integralBuffers =
+            new IntegralImageBinarizer.Buffers();
+    private final DecodeConfig.InversionStrategy inversionStrategy;
+    private final int inversionAfterMisses;
+    private boolean lastHitInverted;
+    private long frameIndex;
+    private int consecutiveMisses;
+    private long lastDecodeNanos;
+    private boolean lastDecodeComplete;
+
+    /**
+     * @param hints The hints of the scan. {@link DecodeHintType#POSSIBLE_FORMATS} decides which
+     *              of the two readers run.
+     * @param config Supplies the frame budget, binarizer and inversion settings.
+     */
+    @SuppressWarnings("unchecked")
+    public MultiFrameDecoder(Hashtable<DecodeHintType, Object> hints, DecodeConfig config,
+                             DecodeStats stats) {
+        this.stats = stats;
+        budget = new DecodeBudget(config.getFrameBudgetMillis() * 1000000L);
+        binarizerType = config.getBinarizerType();
+        integralWindowSize = config.getIntegralWindowSize();
+        integralThresholdPercent = config.getIntegralThresholdPercent();
+        inversionStrategy = config.getInversionStrategy();
+        inversionAfterMisses = config.getInversionAfterMisses();
+        Collection<BarcodeFormat> formats =
+                (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        Vector<BarcodeFormat> others = new Vector<BarcodeFormat>();
+        if (formats != null) {
+            others.addAll(formats);
+        } else {
+            others.addAll(DecodeFormatManager.ONE_D_FORMATS);
+            others.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+            others.add(BarcodeFormat.QR_CODE);
+        }
+        boolean qr = others.remove(BarcodeFormat.QR_CODE);
+        if (qr) {
+            qrReader = new QRCodeMultiReader();
+            qrHints = new Hashtable<DecodeHintType, Object>(hints);
+            qrHints.remove(DecodeHintType.POSSIBLE_FORMATS);
+        } else {
+            qrReader = null;
+            qrHints = null;
+        }
+        if (!others.isEmpty()) {
+            otherReader = new GenericMultipleBarcodeReader(new MultiFormatReader());
+            otherHints = new Hashtable<DecodeHintType, Object>(hints);
+            otherHints.put(DecodeHintType.POSSIBLE_FORMATS, others);
+        } else {
+            otherReader = null;
+            otherHints = null;
+        }
+    }
+
+    /**
+     * @param source The cropped luminance of the frame. Must support cropping, the generic
+     *               reader searches around each code it finds by cropping the frame.
+     * @return Every barcode found, empty if none.
+     */
+    public Result[] decode(LuminanceSource source) {
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<Result>();
+        lastDecodeComplete = false;
+        boolean tryInverted = chooseInversion();
+        budget.start();
+        Binarizer binarizer = binarize(new BudgetedLuminanceSource(source, budget));
+        try {
+            decode(new BinaryBitmap(binarizer), results);
+            if (tryInverted) {
+                int found = results.size();
+                decode(new BinaryBitmap(new InvertedBinarizer(binarizer)), results);
+                lastHitInverted = results.size() > found;
+                stats.onInvertedDecoded(lastHitInverted);
+            }
+            // Like FrameDecoder, a frame that left out an inverted attempt a later frame may
+            // still make does not show the scene holds nothing.
+            lastDecodeComplete = tryInverted
+                    || inversionStrategy == DecodeConfig.InversionStrategy.OFF;
+        } catch (DecodeBudget.DecodeAbortedException e) {
+            // Keep what was found before time ran out.
+            if (e == DecodeBudget.EXCEEDED) {
+                stats.onBudgetExceeded();
+            } else {
+                stats.onDecodeCancelled();
+            }
+        }
+        consecutiveMisses = results.isEmpty() ? consecutiveMisses + 1 : 0;
+        lastDecodeNanos = System.nanoTime() - start;
+        stats.onFrameDecoded(lastDecodeNanos, !results.isEmpty());
+        stats.onCodesDecoded(results.size());
+        return results.isEmpty() ? NO_RESULTS : results.toArray(new Result[results.size()]);
+    }
+
+    private void decode(BinaryBitmap bitmap, List<Result> results) {
+        if (qrReader != null) {
+            addAll(results, decode(qrReader, bitmap, qrHints));
+        }
+        if (otherReader != null) {
+            addAll(results, decode(otherReader, bitmap, otherHints));
+        }
+    }
+
+    /**
+     * Decides whether this frame also looks for light-on-dark codes, as
+     * {@link FrameDecoder} does. Both attempts run when it does, since a frame may hold codes
+     * of either kind.
+     */
+    private boolean chooseInversion() {
+        switch (inversionStrategy) {
+            case ALTERNATE:
+                return (frameIndex++ & 1) == 1;
+            case ADAPTIVE:
+                return lastHitInverted || consecutiveMisses >= inversionAfterMisses;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Crops taken by the generic reader get binarizers of their own, see
+     * {@link ReusableHybridBinarizer}.
+     */
+    private Binarizer binarize(LuminanceSource source) {
+        switch (binarizerType) {
+            case REUSABLE_HYBRID:
+                return new ReusableHybridBinarizer(source, binarizerBuffers);
+            case INTEGRAL_IMAGE:
+                return new IntegralImageBinarizer(source, integralWindowSize, integralThresholdPercent,
+                        integralBuffers);
+            default:
+                return new HybridBinarizer(source);
+        }
+    }
+
+    private static Result[] decode(QRCodeMultiReader reader, BinaryBitmap bitmap,
+                                   Hashtable<DecodeHintType, Object> hints) {
+        try {
+            return reader.decodeMultiple(bitmap, hints);
+        } catch (ReaderException re) {
+            return NO_RESULTS;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    private static Result[] decode(GenericMultipleBarcodeReader reader, BinaryBitmap bitmap,
+                                   Hashtable<DecodeHintType, Object> hints) {
+        try {
+            return reader.decodeMultiple(bitmap, hints);
+        } catch (ReaderException re) {
+            return NO_RESULTS;
+        }
+    }
+
+    /**
+     * Adds the results that are not already in {@code results}, the same code may be found by
+     * both readers.
+     */
+    private static void addAll(List<Result> results, Result[] found) {
+        for (Result result : found) {
+            boolean duplicate = false;
+            for (Result existing : results) {
+                if (existing.getBarcodeFormat() == result.getBarcodeFormat()
+                        && existing.getText().equals(result.getText())) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                results.add(result);
+            }
+        }
+    }
+
+    /**
+     * Abandons the frame being decoded, or the next one if none is. Safe to call from any thread.
+     */
+    public void cancel() {
+        budget.cancel();
+    }
+
+    /**
+     * Drops a cancel that has not abandoned a frame yet. Called on the decoding thread.
+     */
+    public void clearCancel() {
+        budget.clearCancel();
+    }
+
+    public long getLastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    /**
+     * @return Whether the most recent {@link #decode} ran every reader to the end, including
+     * the inverted attempt unless inversion is off, rather than being abandoned by the budget
+     * or a cancel.
+     */
+    public boolean isLastDecodeComplete() {
+        return lastDecodeComplete;
+    }
+
+    public DecodeStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,112 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.maxicode.MaxiCodeReader;
+import com.google.zxing.oned.MultiFormatOneDReader;
+import com.google.zxing.pdf417.PDF417Reader;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Like {@code MultiFormatReader}, but with one reader per {@link FormatPrioritizer.Family} and
+ * the order in which they are tried chosen per frame by a {@link FormatPrioritizer}.
+ * {@code MultiFormatReader} fixes its order when the hints are set, with 1D first.
+ * <p>
+ * 按扫码历史排序的多格式解码器
+ */
+public final class PrioritizedReader implements Reader {
+
+    private final Map<DecodeHintType, ?> hints;
+    private final FormatPrioritizer prioritizer;
+    private final EnumMap<FormatPrioritizer.Family, Reader> readers =
+            new EnumMap<FormatPrioritizer.Family, Reader>(FormatPrioritizer.Family.class);
+    private final FormatPrioritizer.Family[] enabled;
+
+    @SuppressWarnings("unchecked")
+    public PrioritizedReader(Map<DecodeHintType, ?> hints, FormatPrioritizer prioritizer) {
+        this.hints = hints;
+        this.prioritizer = prioritizer;
+        Collection<BarcodeFormat> formats =
+                (Collection<BarcodeFormat>) hints.get(DecodeHintType.POSSIBLE_FORMATS);
+        List<FormatPrioritizer.Family> families = new ArrayList<FormatPrioritizer.Family>();
+        for (FormatPrioritizer.Family family : FormatPrioritizer.Family.values()) {
+            if (formats == null || containsFamily(formats, family)) {
+                readers.put(family, newReader(family));
+                families.add(family);
+            }
+        }
+        enabled = families.toArray(new FormatPrioritizer.Family[families.size()]);
+    }
+
+    private static boolean containsFamily(Collection<BarcodeFormat> formats,
+                                          FormatPrioritizer.Family family) {
+        for (BarcodeFormat format : formats) {
+            if (FormatPrioritizer.Family.of(format) == family) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Reader newReader(FormatPrioritizer.Family family) {
+        switch (family) {
+            case QR_CODE:
+                return new QRCodeReader();
+            case DATA_MATRIX:
+                return new DataMatrixReader();
+            case AZTEC:
+                return new AztecReader();
+            case PDF_417:
+                return new PDF417Reader();
+            case MAXICODE:
+                return new MaxiCodeReader();
+            default:
+                return new MultiFormatOneDReader(hints);
+        }
+    }
+
+    /**
+     * Decodes with the hints given to the constructor.
+     */
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+        for (FormatPrioritizer.Family family : prioritizer.nextOrder(enabled)) {
+            try {
+                Result result = readers.get(family).decode(image, hints);
+                prioritizer.recordHit(result.getBarcodeFormat());
+                return result;
+            } catch (ReaderException re) {
+                // continue
+            }
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+
+    /**
+     * The hints are fixed when the reader is built, {@code hints} is ignored.
+     */
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType, ?> hints) throws NotFoundException {
+        return decode(image);
+    }
+
+    @Override
+    public void reset() {
+        for (Reader reader : readers.values()) {
+            reader.reset();
+        }
+    }
+}
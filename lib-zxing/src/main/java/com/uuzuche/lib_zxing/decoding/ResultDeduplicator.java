@@ -0,0 +1,231 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Drops results that were already reported a moment ago, so a code that stays in view while the
+ * decoder runs back to back reaches the callback once. Results are keyed by format and text. A
+ * code counts as new again once it has not been seen for the time to live. At most
+ * {@code capacity} codes are remembered, the rest are evicted by the chosen {@link Eviction}.
+ * Shared by all workers.
+ * <p>
+ * 扫码结果去重：一段时间内重复识别到的同一条码只回调一次
+ */
+public final class ResultDeduplicator {
+
+    public enum Eviction {
+        /**
+         * Forget the code that was seen least recently, so codes still in view are kept.
+         */
+        LEAST_RECENTLY_SEEN,
+        /**
+         * Forget the code that was reported first, however often it was seen since.
+         */
+        FIRST_SEEN
+    }
+
+    private static final Result[] NO_RESULTS = new Result[0];
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final Eviction eviction;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param capacity  How many codes are remembered.
+     * @param ttlMillis How long after its last sighting a code is reported again.
+     */
+    public ResultDeduplicator(int capacity, long ttlMillis, Eviction eviction) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1: " + capacity);
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must be >= 0: " + ttlMillis);
+        }
+        if (eviction == null) {
+            throw new IllegalArgumentException("eviction must not be null");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttlMillis * 1000000L;
+        this.eviction = eviction;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, eviction == Eviction.LEAST_RECENTLY_SEEN) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ResultDeduplicator.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Checks a result without recording it. A code counts as reported only once
+     * {@link #record} was called for it, so results that are dropped before reaching the
+     * callback, e.g. because another worker was first, do not hold it back.
+     *
+     * @return true if it was reported within the time to live and should be dropped. The
+     * sighting then extends the time to live.
+     */
+    public boolean isRepeat(Result result) {
+        return isRepeat(result.getBarcodeFormat(), result.getText(), System.nanoTime());
+    }
+
+    /**
+     * @return The results of one frame that are not repeats, in their original order. Nothing
+     * is recorded.
+     */
+    public Result[] filter(Result[] results) {
+        long now = System.nanoTime();
+        List<Result> fresh = null;
+        for (int i = 0; i < results.length; i++) {
+            boolean repeat = isRepeat(results[i].getBarcodeFormat(), results[i].getText(), now);
+            if (fresh == null && repeat) {
+                // First repeat, copy the new results before it.
+                fresh = new ArrayList<Result>(results.length);
+                for (int j = 0; j < i; j++) {
+                    fresh.add(results[j]);
+                }
+            } else if (fresh != null && !repeat) {
+                fresh.add(results[i]);
+            }
+        }
+        if (fresh == null) {
+            return results;
+        }
+        return fresh.isEmpty() ? NO_RESULTS : fresh.toArray(new Result[fresh.size()]);
+    }
+
+    /**
+     * Records that {@code result} was handed to the callback.
+     */
+    public void record(Result result) {
+        record(result.getBarcodeFormat(), result.getText(), System.nanoTime());
+    }
+
+    /**
+     * Records that every result of one frame was handed to the callback.
+     */
+    public void record(Result[] results) {
+        long now = System.nanoTime();
+        for (Result result : results) {
+            record(result.getBarcodeFormat(), result.getText(), now);
+        }
+    }
+
+    synchronized boolean isRepeat(BarcodeFormat format, String text, long nowNanos) {
+        Entry entry = entries.get(key(format, text));
+        if (entry != null && nowNanos - entry.lastSeenNanos <= ttlNanos) {
+            entry.lastSeenNanos = nowNanos;
+            entry.sightings++;
+            hits++;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void record(BarcodeFormat format, String text, long nowNanos) {
+        String key = key(format, text);
+        Entry entry = entries.get(key);
+        if (entry != null && nowNanos - entry.lastSeenNanos > ttlNanos) {
+            expirations++;
+        }
+        if (entry != null) {
+            // Re-insert, so a first-seen order counts from this report.
+            entries.remove(key);
+        }
+        entries.put(key, new Entry(nowNanos));
+        misses++;
+    }
+
+    private static String key(BarcodeFormat format, String text) {
+        return format + "\n" + text;
+    }
+
+    /**
+     * @return How often the code was seen since it was last reported, counting that report,
+     * 0 if it is not remembered.
+     */
+    public synchronized int getSightings(BarcodeFormat format, String text) {
+        Entry entry = entries.get(key(format, text));
+        return entry == null ? 0 : entry.sightings;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Eviction getEviction() {
+        return eviction;
+    }
+
+    /**
+     * @return Repeats that were dropped.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return Results that were reported.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return Codes forgotten because the cache was full.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * @return Codes reported again after their time to live.
+     */
+    public synchronized long getExpiredCount() {
+        return expirations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResultDeduplicator{" +
+                "size=" + entries.size() + "/" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", hitRate=" + String.format(Locale.US, "%.2f", getHitRate()) +
+                ", evictions=" + evictions +
+                ", expired=" + expirations +
+                '}';
+    }
+
+    private static final class Entry {
+        long lastSeenNanos;
+        int sightings = 1;
+
+        Entry(long lastSeenNanos) {
+            this.lastSeenNanos = lastSeenNanos;
+        }
+    }
+}
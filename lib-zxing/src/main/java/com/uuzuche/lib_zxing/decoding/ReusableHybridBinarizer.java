@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2009 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+/**
+ * The same local thresholding as ZXing 3.0.1's {@link HybridBinarizer}, bit for bit, but the
+ * block black points and the output {@link BitMatrix} come from {@link Buffers} that a worker
+ * keeps from one frame to the next instead of being allocated per frame.
+ * <p>
+ * The matrix returned by {@link #getBlackMatrix()} is overwritten by the next frame binarized
+ * with the same buffers, so it must not be kept once the frame has been decoded. Crops and
+ * rotations, which readers such as {@code GenericMultipleBarcodeReader} may still be using
+ * while the parent frame is alive, get a plain {@link HybridBinarizer}.
+ * <p>
+ * 复用缓冲区的HybridBinarizer，输出与HybridBinarizer完全一致
+ */
+public final class ReusableHybridBinarizer extends GlobalHistogramBinarizer {
+
+    // Constants of HybridBinarizer.
+    private static final int BLOCK_SIZE_POWER = 3;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER;
+    private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;
+    private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+    private static final int MIN_DYNAMIC_RANGE = 24;
+
+    private final Buffers buffers;
+    private BitMatrix matrix;
+
+    public ReusableHybridBinarizer(LuminanceSource source, Buffers buffers) {
+        super(source);
+        this.buffers = buffers;
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        if (matrix != null) {
+            return matrix;
+        }
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
+            byte[] luminances = source.getMatrix();
+            int subWidth = width >> BLOCK_SIZE_POWER;
+            if ((width & BLOCK_SIZE_MASK) != 0) {
+                subWidth++;
+            }
+            int subHeight = height >> BLOCK_SIZE_POWER;
+            if ((height & BLOCK_SIZE_MASK) != 0) {
+                subHeight++;
+            }
+            int[] blackPoints = buffers.blackPoints(subWidth * subHeight);
+            calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+            BitMatrix newMatrix = buffers.matrix(width, height);
+            calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints,
+                    newMatrix);
+            matrix = newMatrix;
+        } else {
+            // If the image is too small, fall back to the global histogram approach.
+            matrix = super.getBlackMatrix();
+        }
+        return matrix;
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new HybridBinarizer(source);
+    }
+
+    /**
+     * For each block in the image, calculate the average black point using a 5x5 grid of the
+     * blocks around it. Also handles the corner cases (fractional blocks are computed based on
+     * the last pixels in the row/column which are also used in the previous block).
+     */
+    private static void calculateThresholdForBlock(byte[] luminances, int subWidth, int subHeight,
+                                                   int width, int height, int[] blackPoints,
+                                                   BitMatrix matrix) {
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            int maxYOffset = height - BLOCK_SIZE;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                int maxXOffset = width - BLOCK_SIZE;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int left = cap(x, 2, subWidth - 3);
+                int top = cap(y, 2, subHeight - 3);
+                int sum = 0;
+                for (int z = -2; z <= 2; z++) {
+                    int row = (top + z) * subWidth;
+                    sum += blackPoints[row + left - 2] + blackPoints[row + left - 1]
+                            + blackPoints[row + left] + blackPoints[row + left + 1]
+                            + blackPoints[row + left + 2];
+                }
+                int average = sum / 25;
+                thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
+            }
+        }
+    }
+
+    private static int cap(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    /**
+     * Applies a single threshold to a block of pixels.
+     */
+    private static void thresholdBlock(byte[] luminances, int xoffset, int yoffset, int threshold,
+                                       int stride, BitMatrix matrix) {
+        for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+            for (int x = 0; x < BLOCK_SIZE; x++) {
+                // Comparison needs to be <= so that black == 0 pixels are black even if the
+                // threshold is 0.
+                if ((luminances[offset + x] & 0xFF) <= threshold) {
+                    matrix.set(xoffset + x, yoffset + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates a single black point for each block of pixels and saves it away, row after row,
+     * in {@code blackPoints}.
+     */
+    private static void calculateBlackPoints(byte[] luminances, int subWidth, int subHeight,
+                                             int width, int height, int[] blackPoints) {
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = y << BLOCK_SIZE_POWER;
+            int maxYOffset = height - BLOCK_SIZE;
+            if (yoffset > maxYOffset) {
+                yoffset = maxYOffset;
+            }
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = x << BLOCK_SIZE_POWER;
+                int maxXOffset = width - BLOCK_SIZE;
+                if (xoffset > maxXOffset) {
+                    xoffset = maxXOffset;
+                }
+                int sum = 0;
+                int min = 0xFF;
+                int max = 0;
+                for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+                    for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                        int pixel = luminances[offset + xx] & 0xFF;
+                        sum += pixel;
+                        if (pixel < min) {
+                            min = pixel;
+                        }
+                        if (pixel > max) {
+                            max = pixel;
+                        }
+                    }
+                    // short-circuit min/max tests once dynamic range is met
+                    if (max - min > MIN_DYNAMIC_RANGE) {
+                        // finish the rest of the rows quickly
+                        for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+                            for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                                sum += luminances[offset + xx] & 0xFF;
+                            }
+                        }
+                    }
+                }
+
+                // The default estimate is the average of the values in the block.
+                int average = sum >> (BLOCK_SIZE_POWER * 2);
+                if (max - min <= MIN_DYNAMIC_RANGE) {
+                    // If variation within the block is low, assume this is a block with only
+                    // light or only dark pixels. In that case we do not want to use the average,
+                    // as it would divide this low contrast area into black and white pixels,
+                    // essentially creating data out of noise.
+                    average = min / 2;
+
+                    if (y > 0 && x > 0) {
+                        // Correct the "white background" assumption for blocks that have
+                        // neighbors by comparing the pixels in this block to the previously
+                        // calculated black points.
+                        int above = (y - 1) * subWidth + x;
+                        int averageNeighborBlackPoint = (blackPoints[above]
+                                + (2 * blackPoints[y * subWidth + x - 1])
+                                + blackPoints[above - 1]) / 4;
+                        if (min < averageNeighborBlackPoint) {
+                            average = averageNeighborBlackPoint;
+                        }
+                    }
+                }
+                blackPoints[y * subWidth + x] = average;
+            }
+        }
+    }
+
+    /**
+     * Working memory of one worker, grown to the largest frame seen. Not thread safe.
+     */
+    public static final class Buffers {
+
+        /**
+         * Frames of a scan come in a few sizes at most: one per pyramid level and tier.
+         */
+        private static final int MATRIX_SLOTS = 4;
+
+        private int[] blackPoints = new int[0];
+        private final BitMatrix[] matrices = new BitMatrix[MATRIX_SLOTS];
+        private int nextSlot;
+        private long allocations;
+
+        int[] blackPoints(int size) {
+            if (blackPoints.length < size) {
+                blackPoints = new int[size];
+                allocations++;
+            }
+            return blackPoints;
+        }
+
+        /**
+         * @return A cleared matrix of the given size.
+         */
+        BitMatrix matrix(int width, int height) {
+            for (BitMatrix matrix : matrices) {
+                if (matrix != null && matrix.getWidth() == width && matrix.getHeight() == height) {
+                    matrix.clear();
+                    return matrix;
+                }
+            }
+            BitMatrix matrix = new BitMatrix(width, height);
+            matrices[nextSlot] = matrix;
+            nextSlot = (nextSlot + 1) % MATRIX_SLOTS;
+            allocations++;
+            return matrix;
+        }
+
+        /**
+         * @return How often a buffer had to be allocated, i.e. the frames that could not reuse
+         * one.
+         */
+        public long getAllocationCount() {
+            return allocations;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.uuzuche.lib_zxing.decoding;
+
+/**
+ * Narrows the area decoded within the framing rect to where recent frames found possible result
+ * points, such as QR finder patterns. Once a code is partly visible the next attempts read fewer
+ * pixels. Every frame that misses without reporting new points widens the region again. After
+ * {@link #MAX_MISSES} narrowed frames without a result it is back to the whole framing rect, even
+ * if they all reported points, so clutter that looks like finder patterns cannot keep the
+ * region away from the real code.
+ * <p>
+ * Coordinates are in the luminance source of the full framing rect. Shared by all workers.
+ * <p>
+ * 感兴趣区域跟踪：根据可能的定位点缩小下一帧的解码区域
+ */
+public final class RoiTracker {
+
+    static final int MAX_MISSES = 3;
+    /**
+     * Space added around the points on every side, relative to their extent. Finder pattern
+     * centres lie a few modules inside the code.
+     */
+    static final float MARGIN = 0.5f;
+    /**
+     * The region never gets smaller than this share of the framing rect on either side.
+     */
+    static final float MIN_FRACTION = 0.3f;
+    /**
+     * How much the region grows after a miss without points.
+     */
+    static final float GROWTH = 1.5f;
+
+    private boolean active;
+    private float centerX;
+    private float centerY;
+    private float halfWidth;
+    private float halfHeight;
+    private int misses;
+    private long narrowedFrames;
+
+    /**
+     * @return The region to decode as {left, top, width, height} within a source of the given
+     * size, or null to decode all of it.
+     */
+    public synchronized int[] getRegion(int width, int height) {
+        if (!active) {
+            return null;
+        }
+        int left = Math.max(0, (int) (centerX - halfWidth));
+        int top = Math.max(0, (int) (centerY - halfHeight));
+        int right = Math.min(width, (int) Math.ceil(centerX + halfWidth));
+        int bottom = Math.min(height, (int) Math.ceil(centerY + halfHeight));
+        if (right - left >= width && bottom - top >= height) {
+            return null;
+        }
+        if (right <= left || bottom <= top) {
+            // Points from a larger source than this one.
+            return null;
+        }
+        narrowedFrames++;
+        return new int[]{left, top, right - left, bottom - top};
+    }
+
+    /**
+     * Updates the region after a frame has been decoded.
+     *
+     * @param points Possible result points reported while decoding the frame.
+     * @param found  Whether the frame produced a result, which ends the scan.
+     */
+    public synchronized void onFrameDecoded(Bounds points, boolean found, int width, int height) {
+        if (found) {
+            reset();
+            return;
+        }
+        if (active && ++misses >= MAX_MISSES) {
+            // Points alone never extend the narrowing, the next frame is decoded whole.
+            reset();
+            return;
+        }
+        if (points.count >= 2) {
+            float minHalfWidth = width * MIN_FRACTION / 2;
+            float minHalfHeight = height * MIN_FRACTION / 2;
+            centerX = (points.minX + points.maxX) / 2;
+            centerY = (points.minY + points.maxY) / 2;
+            halfWidth = Math.max(minHalfWidth, (points.maxX - points.minX) * (0.5f + MARGIN));
+            halfHeight = Math.max(minHalfHeight, (points.maxY - points.minY) * (0.5f + MARGIN));
+            active = true;
+        } else if (active) {
+            halfWidth *= GROWTH;
+            halfHeight *= GROWTH;
+        }
+    }
+
+    public synchronized void reset() {
+        active = false;
+        misses = 0;
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return Frames that were decoded on a narrowed region.
+     */
+    public synchronized long getNarrowedFrameCount() {
+        return narrowedFrames;
+    }
+
+    /**
+     * The bounding box of the points found while decoding one frame. Owned by one worker.
+     */
+    public static final class Bounds {
+
+        int count;
+        float minX;
+        float minY;
+        float maxX;
+        float maxY;
+
+        public void add(float x, float y) {
+            if (count++ == 0) {
+                minX = maxX = x;
+                minY = maxY = y;
+                return;
+            }
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        public void clear() {
+            count = 0;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * Skips frames that are too blurred to be worth decoding, e.g. while autofocus is hunting or
+ * the phone is moving. Sharpness is the gradient energy of a few sampled rows, which costs a
+ * small fraction of a decode.
+ * <p>
+ * Gradient energy depends on the scene as much as on focus, so there is no fixed threshold: a
+ * frame is skipped when it is much less sharp than the sharpest recent frame. That peak decays
+ * over time, so a scene that is blurry throughout is still decoded, and no more than
+ * {@link #MAX_CONSECUTIVE_SKIPS} frames are skipped in a row.
+ * <p>
+ * Shared by every decode worker of a scan.
+ * <p>
+ * 清晰度门限：跳过模糊的帧，阈值根据最近的帧自动调整
+ */
+public final class SharpnessGate {
+
+    /**
+     * Rows sampled per frame.
+     */
+    private static final int SAMPLE_ROWS = 16;
+    /**
+     * Frames sharper than this share of the recent peak are decoded.
+     */
+    private static final double ACCEPT_RATIO = 0.5;
+    /**
+     * Per-frame decay of the peak, about halving it in 14 frames.
+     */
+    private static final double PEAK_DECAY = 0.95;
+    static final int MAX_CONSECUTIVE_SKIPS = 5;
+
+    private double peak;
+    private int consecutiveSkips;
+
+    /**
+     * @return The mean squared difference between pixels two apart, over a sample of rows.
+     */
+    public static double measure(LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width < 3 || height == 0) {
+            return 0;
+        }
+        int rows = Math.min(SAMPLE_ROWS, height);
+        byte[] row = new byte[width];
+        long energy = 0;
+        long samples = 0;
+        for (int i = 0; i < rows; i++) {
+            // Centre of each of the horizontal bands.
+            int y = (2 * i + 1) * height / (2 * rows);
+            row = source.getRow(y, row);
+            for (int x = 2; x < width; x += 2) {
+                int gradient = (row[x] & 0xff) - (row[x - 2] & 0xff);
+                energy += gradient * gradient;
+            }
+            samples += (width - 1) / 2;
+        }
+        return (double) energy / samples;
+    }
+
+    /**
+     * Measures a frame and decides whether to decode it.
+     *
+     * @return false if the frame should be skipped.
+     */
+    public boolean accept(LuminanceSource source) {
+        return accept(measure(source));
+    }
+
+    synchronized boolean accept(double sharpness) {
+        peak = Math.max(sharpness, peak * PEAK_DECAY);
+        if (sharpness >= peak * ACCEPT_RATIO || consecutiveSkips >= MAX_CONSECUTIVE_SKIPS) {
+            consecutiveSkips = 0;
+            return true;
+        }
+        consecutiveSkips++;
+        return false;
+    }
+
+    /**
+     * @return The sharpness of the sharpest recent frame, decayed.
+     */
+    public synchronized double getPeak() {
+        return peak;
+    }
+}
@@ -157,8 +157,10 @@ public final class ViewfinderView extends View {
                 paint.setColor(resultPointColor);
 
                 if (isCircle) {
-                    for (ResultPoint point : currentPossible) {
-                        canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 6.0f, paint);
+                    synchronized (currentPossible) {
+                        for (ResultPoint point : currentPossible) {
+                            canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 6.0f, paint);
+                        }
                     }
                 }
             }
@@ -167,8 +169,10 @@ public final class ViewfinderView extends View {
                 paint.setColor(resultPointColor);
 
                 if (isCircle) {
-                    for (ResultPoint point : currentLast) {
-                        canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 3.0f, paint);
+                    synchronized (currentLast) {
+                        for (ResultPoint point : currentLast) {
+                            canvas.drawCircle(frame.left + point.getX(), frame.top + point.getY(), 3.0f, paint);
+                        }
                     }
                 }
             }
@@ -264,8 +268,14 @@ public final class ViewfinderView extends View {
         invalidate();
     }
 
+    /**
+     * May be called from several decode threads at once.
+     */
     public void addPossibleResultPoint(ResultPoint point) {
-        possibleResultPoints.add(point);
+        Collection<ResultPoint> points = possibleResultPoints;
+        synchronized (points) {
+            points.add(point);
+        }
     }
 
 
@@ -0,0 +1,84 @@
+package com.uuzuche.lib_zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Hashtable;
+import java.util.Random;
+
+/**
+ * Deterministic greyscale preview frames with a barcode painted in, standing in for recorded
+ * camera frames in unit tests and benchmarks.
+ */
+public final class SyntheticFrames {
+
+    public static final int LIGHT = 200;
+    public static final int DARK = 40;
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * Encodes {@code text} without quiet zone, one bit per module.
+     */
+    public static BitMatrix encode(String text, BarcodeFormat format) {
+        Hashtable<EncodeHintType, Object> hints = new Hashtable<EncodeHintType, Object>();
+        hints.put(EncodeHintType.MARGIN, 0);
+        try {
+            BitMatrix matrix = new MultiFormatWriter().encode(text, format, 0, 0, hints);
+            if (format != BarcodeFormat.QR_CODE && format != BarcodeFormat.DATA_MATRIX) {
+                // 1D writers return a single row, give the bars some height.
+                BitMatrix tall = new BitMatrix(matrix.getWidth(), matrix.getWidth() / 4);
+                for (int x = 0; x < matrix.getWidth(); x++) {
+                    if (matrix.get(x, 0)) {
+                        tall.setRegion(x, 0, 1, tall.getHeight());
+                    }
+                }
+                return tall;
+            }
+            return matrix;
+        } catch (WriterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Renders a frame of {@code width * height} luma bytes with {@code code} scaled by
+     * {@code modulePx} and its top-left corner at ({@code left}, {@code top}). Sensor noise of
+     * +/- {@code noise} grey levels is added from a fixed seed.
+     */
+    public static byte[] render(BitMatrix code, int width, int height, int left, int top,
+                                int modulePx, int noise, long seed) {
+        byte[] frame = new byte[width * height];
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            int cy = y - top;
+            for (int x = 0; x < width; x++) {
+                int cx = x - left;
+                boolean dark = cx >= 0 && cy >= 0
+                        && cx < code.getWidth() * modulePx && cy < code.getHeight() * modulePx
+                        && code.get(cx / modulePx, cy / modulePx);
+                int value = dark ? DARK : LIGHT;
+                if (noise > 0) {
+                    value += random.nextInt(2 * noise + 1) - noise;
+                }
+                frame[y * width + x] = (byte) Math.max(0, Math.min(255, value));
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Renders {@code text} centred in the frame.
+     */
+    public static byte[] centred(String text, BarcodeFormat format, int width, int height,
+                                 int modulePx, long seed) {
+        BitMatrix code = encode(text, format);
+        int left = (width - code.getWidth() * modulePx) / 2;
+        int top = (height - code.getHeight() * modulePx) / 2;
+        return render(code, width, height, left, top, modulePx, 12, seed);
+    }
+}
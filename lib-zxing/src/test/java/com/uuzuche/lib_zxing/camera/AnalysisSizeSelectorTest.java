@@ -0,0 +1,63 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnalysisSizeSelectorTest {
+
+    /**
+     * YUV_420_888 output sizes of a typical phone, largest first as the camera lists them.
+     */
+    private static final int[][] PHONE_SIZES = {
+            {4032, 3024}, {3840, 2160}, {1920, 1440}, {1920, 1080}, {1440, 1080},
+            {1280, 960}, {1280, 720}, {960, 720}, {960, 540}, {800, 600},
+            {720, 480}, {640, 480}, {640, 360}, {352, 288}, {320, 240}, {176, 144},
+    };
+
+    @Test
+    public void picksSmallestSizeThatResolvesTheFramingRect() {
+        AnalysisSizeSelector selector = new AnalysisSizeSelector();
+        // A square framing rect half as wide as a 1080x2340 portrait screen: 540 px, about a
+        // quarter of the frame width and half of its height.
+        int[] size = selector.select(PHONE_SIZES, 1920, 1080, 540f / 2340, 540f / 1080);
+        assertArrayEquals(new int[]{1280, 720}, size);
+        assertTrue(size[0] * 540f / 2340 >= selector.getRequiredPixels());
+        assertTrue(size[1] * 0.5f >= selector.getRequiredPixels());
+    }
+
+    @Test
+    public void keepsTheAspectRatioOfThePreview() {
+        int[] size = new AnalysisSizeSelector().select(PHONE_SIZES, 1440, 1080, 0.5f, 0.5f);
+        assertEquals(4 * size[1], 3 * size[0]);
+        assertArrayEquals(new int[]{640, 480}, size);
+    }
+
+    @Test
+    public void smallFramingRectNeedsTheFullPreview() {
+        // Nothing smaller than the preview resolves a framing rect this small.
+        int[] size = new AnalysisSizeSelector().select(PHONE_SIZES, 1920, 1080, 0.1f, 0.2f);
+        assertArrayEquals(new int[]{1920, 1080}, size);
+    }
+
+    @Test
+    public void neverLargerThanThePreview() {
+        int[] size = new AnalysisSizeSelector(200, 3f, 0.5f).select(PHONE_SIZES, 1280, 720, 1f, 1f);
+        assertArrayEquals(new int[]{1280, 720}, size);
+    }
+
+    @Test
+    public void fallsBackToPreviewWithoutMatchingAspect() {
+        int[][] sizes = {{1600, 1200}, {800, 600}};
+        assertArrayEquals(new int[]{1920, 1080},
+                new AnalysisSizeSelector().select(sizes, 1920, 1080, 1f, 1f));
+    }
+
+    @Test
+    public void denserCodesNeedMorePixels() {
+        int[] coarse = new AnalysisSizeSelector(21, 2f, 0.5f).select(PHONE_SIZES, 1920, 1080, 0.5f, 0.5f);
+        int[] fine = new AnalysisSizeSelector(77, 3f, 0.5f).select(PHONE_SIZES, 1920, 1080, 0.5f, 0.5f);
+        assertArrayEquals(new int[]{640, 360}, coarse);
+        assertArrayEquals(new int[]{1920, 1080}, fine);
+    }
+}
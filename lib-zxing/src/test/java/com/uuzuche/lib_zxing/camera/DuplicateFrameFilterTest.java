@@ -0,0 +1,111 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DuplicateFrameFilterTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    /**
+     * A horizontal gradient with up to {@code noise} grey levels of sensor noise.
+     */
+    private static byte[] scene(long seed, int noise) {
+        Random random = new Random(seed);
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int value = 60 + x + (noise > 0 ? random.nextInt(2 * noise + 1) - noise : 0);
+                pixels[y * WIDTH + x] = (byte) value;
+            }
+        }
+        return pixels;
+    }
+
+    private static FrameSignature signature(byte[] pixels) {
+        FrameSignature signature = new FrameSignature();
+        FrameExtractor.extractLuma(ByteBuffer.wrap(pixels), WIDTH, 1, 0, 0, WIDTH, HEIGHT,
+                new byte[pixels.length], signature);
+        return signature;
+    }
+
+    private static DuplicateFrameFilter filter() {
+        DuplicateFrameFilter filter = new DuplicateFrameFilter();
+        filter.setEnabled(true);
+        return filter;
+    }
+
+    @Test
+    public void noiseStaysWithinTolerance() {
+        assertTrue(signature(scene(1, 8)).distance(signature(scene(2, 8))) <= 4);
+    }
+
+    @Test
+    public void smallObjectChangesOneCell() {
+        byte[] pixels = scene(1, 0);
+        // A dark square covering most of one 20x15 cell.
+        for (int y = 0; y < 12; y++) {
+            for (int x = 0; x < 16; x++) {
+                pixels[(y + 46) * WIDTH + x + 82] = 0;
+            }
+        }
+        assertTrue(signature(scene(1, 0)).distance(signature(pixels)) > 50);
+    }
+
+    @Test
+    public void copyAndPlaneSamplingAgree() {
+        byte[] pixels = scene(3, 8);
+        // Interleaved plane with padded rows, cropped.
+        int rowStride = WIDTH * 2 + 16;
+        byte[] plane = new byte[rowStride * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                plane[y * rowStride + x * 2] = pixels[y * WIDTH + x];
+            }
+        }
+        FrameSignature copied = new FrameSignature();
+        FrameExtractor.extractLuma(ByteBuffer.wrap(plane), rowStride, 2, 10, 20, 100, 80,
+                new byte[100 * 80], copied);
+        FrameSignature sampled = new FrameSignature();
+        FrameExtractor.sampleSignature(ByteBuffer.wrap(plane), rowStride, 2, 10, 20, 100, 80, sampled);
+        assertEquals(0, copied.distance(sampled));
+    }
+
+    @Test
+    public void skipsOnlyAfterAFailedFrame() {
+        DuplicateFrameFilter filter = filter();
+        assertFalse(filter.isDuplicate(signature(scene(1, 8))));
+        filter.onDecodeFailed(signature(scene(1, 8)));
+        assertTrue(filter.isDuplicate(signature(scene(2, 8))));
+        filter.reset();
+        assertFalse(filter.isDuplicate(signature(scene(2, 8))));
+        assertEquals(3, filter.getCheckedCount());
+        assertEquals(1, filter.getSkippedCount());
+    }
+
+    @Test
+    public void decodesEveryFewDuplicatesAnyway() {
+        DuplicateFrameFilter filter = filter();
+        FrameSignature still = signature(scene(1, 0));
+        filter.onDecodeFailed(still);
+        for (int i = 0; i < DuplicateFrameFilter.MAX_CONSECUTIVE_SKIPS; i++) {
+            assertTrue(filter.isDuplicate(still));
+        }
+        assertFalse(filter.isDuplicate(still));
+        assertTrue(filter.isDuplicate(still));
+    }
+
+    @Test
+    public void disabledFilterNeverSkips() {
+        DuplicateFrameFilter filter = new DuplicateFrameFilter();
+        FrameSignature still = signature(scene(1, 0));
+        filter.onDecodeFailed(still);
+        assertFalse(filter.isDuplicate(still));
+        assertEquals(0, filter.getCheckedCount());
+    }
+}
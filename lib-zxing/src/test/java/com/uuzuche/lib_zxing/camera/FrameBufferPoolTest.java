@@ -0,0 +1,50 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferPoolTest {
+
+    @Test
+    public void steadyStateReusesBuffers() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        PreviewFrame first = pool.acquire(100);
+        first.release();
+        for (int i = 0; i < 50; i++) {
+            PreviewFrame frame = pool.acquire(100);
+            assertSame(first, frame);
+            frame.release();
+        }
+        assertEquals(1, pool.getMissCount());
+        assertEquals(50, pool.getHitCount());
+    }
+
+    @Test
+    public void growsWhenFrameSizeChanges() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        pool.acquire(100).release();
+        PreviewFrame larger = pool.acquire(200);
+        assertTrue(larger.getData().length >= 200);
+        assertEquals(2, pool.getMissCount());
+        larger.release();
+        // Smaller frames fit in the larger buffer.
+        assertSame(larger, pool.acquire(50));
+    }
+
+    @Test
+    public void keepsAtMostCapacityIdleFrames() {
+        FrameBufferPool pool = new FrameBufferPool(2);
+        PreviewFrame a = pool.acquire(10);
+        PreviewFrame b = pool.acquire(10);
+        PreviewFrame c = pool.acquire(10);
+        a.release();
+        b.release();
+        c.release();
+        pool.acquire(10);
+        pool.acquire(10);
+        pool.acquire(10);
+        assertEquals(2, pool.getHitCount());
+        assertEquals(4, pool.getMissCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameExtractorTest {
+
+    private static final byte PADDING = (byte) 0xEE;
+
+    /**
+     * A plane of {@code width * height} pixels where pixel (x, y) has value {@code y * 16 + x},
+     * padded to {@code rowStride} bytes per row. Like real planes, the last row is not padded.
+     */
+    private static ByteBuffer paddedPlane(int width, int height, int rowStride, int pixelStride,
+                                          boolean direct) {
+        int size = (height - 1) * rowStride + (width - 1) * pixelStride + 1;
+        ByteBuffer plane = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            plane.put(i, PADDING);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                plane.put(y * rowStride + x * pixelStride, (byte) (y * 16 + x));
+            }
+        }
+        return plane;
+    }
+
+    private static byte[] expected(int left, int top, int width, int height) {
+        byte[] pixels = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = (byte) ((top + y) * 16 + left + x);
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    public void skipsRowPadding() {
+        ByteBuffer plane = paddedPlane(10, 6, 16, 1, true);
+        byte[] out = new byte[60];
+        FrameExtractor.extractLuma(plane, 16, 1, 0, 0, 10, 6, out);
+        assertArrayEquals(expected(0, 0, 10, 6), out);
+    }
+
+    @Test
+    public void unpaddedPlaneIsCopiedWhole() {
+        ByteBuffer plane = paddedPlane(10, 6, 10, 1, false);
+        byte[] out = new byte[60];
+        FrameExtractor.extractLuma(plane, 10, 1, 0, 0, 10, 6, out);
+        assertArrayEquals(expected(0, 0, 10, 6), out);
+    }
+
+    @Test
+    public void cropsWhileCopying() {
+        ByteBuffer plane = paddedPlane(10, 6, 16, 1, true);
+        byte[] out = new byte[12];
+        FrameExtractor.extractLuma(plane, 16, 1, 3, 2, 4, 3, out);
+        assertArrayEquals(expected(3, 2, 4, 3), out);
+    }
+
+    @Test
+    public void cropReachesLastUnpaddedRow() {
+        ByteBuffer plane = paddedPlane(10, 6, 16, 1, true);
+        byte[] out = new byte[20];
+        FrameExtractor.extractLuma(plane, 16, 1, 5, 2, 5, 4, out);
+        assertArrayEquals(expected(5, 2, 5, 4), out);
+    }
+
+    @Test
+    public void honoursPixelStride() {
+        ByteBuffer plane = paddedPlane(8, 5, 20, 2, true);
+        byte[] out = new byte[40];
+        FrameExtractor.extractLuma(plane, 20, 2, 0, 0, 8, 5, out);
+        assertArrayEquals(expected(0, 0, 8, 5), out);
+
+        byte[] cropped = new byte[6];
+        FrameExtractor.extractLuma(plane, 20, 2, 1, 3, 3, 2, cropped);
+        assertArrayEquals(expected(1, 3, 3, 2), cropped);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCropOutsidePlane() {
+        ByteBuffer plane = paddedPlane(10, 6, 16, 1, true);
+        FrameExtractor.extractLuma(plane, 16, 1, 4, 0, 10, 6, new byte[60]);
+    }
+}
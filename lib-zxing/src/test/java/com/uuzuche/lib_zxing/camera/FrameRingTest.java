@@ -0,0 +1,113 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameRingTest {
+
+    private final FrameBufferPool pool = new FrameBufferPool(8);
+
+    /**
+     * What the camera does with a frame that finds every worker busy.
+     *
+     * @return The frame, or null if it was dropped before being copied.
+     */
+    private PreviewFrame produceWhileBusy(FrameRing ring) {
+        if (ring.shouldHoldBack()) {
+            return null;
+        }
+        ring.onFrameProduced();
+        if (!ring.accepts()) {
+            return null;
+        }
+        PreviewFrame frame = pool.acquire(16);
+        ring.offer(frame);
+        return frame;
+    }
+
+    @Test
+    public void withoutCapacityBusyFramesAreDropped() {
+        FrameRing ring = new FrameRing();
+        for (int i = 0; i < 3; i++) {
+            assertNull(produceWhileBusy(ring));
+        }
+        ring.onFrameProduced();
+        ring.onFrameDecoded();
+        assertNull(ring.poll());
+        assertEquals(4, ring.getProducedCount());
+        assertEquals(3, ring.getDroppedCount());
+        assertEquals(1, ring.getDecodedCount());
+    }
+
+    @Test
+    public void newestWinsKeepsTheLatestFrames() {
+        FrameRing ring = new FrameRing();
+        ring.configure(2, FrameRing.DropPolicy.NEWEST_WINS);
+        PreviewFrame first = produceWhileBusy(ring);
+        PreviewFrame second = produceWhileBusy(ring);
+        PreviewFrame third = produceWhileBusy(ring);
+        assertEquals(2, ring.size());
+        assertSame(second, ring.poll());
+        assertSame(third, ring.poll());
+        assertNull(ring.poll());
+        assertEquals(3, ring.getProducedCount());
+        assertEquals(1, ring.getDroppedCount());
+        assertEquals(2, ring.getDecodedCount());
+        // The dropped frame went back to its pool.
+        assertSame(first, pool.acquire(16));
+    }
+
+    @Test
+    public void oldestWinsDropsNewFramesWithoutCopying() {
+        FrameRing ring = new FrameRing();
+        ring.configure(2, FrameRing.DropPolicy.OLDEST_WINS);
+        PreviewFrame first = produceWhileBusy(ring);
+        PreviewFrame second = produceWhileBusy(ring);
+        assertNull(produceWhileBusy(ring));
+        assertSame(first, ring.poll());
+        assertSame(second, ring.poll());
+        assertEquals(1, ring.getDroppedCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void blockHoldsTheCameraBackUntilThereIsRoom() {
+        FrameRing ring = new FrameRing();
+        ring.configure(1, FrameRing.DropPolicy.BLOCK);
+        PreviewFrame first = produceWhileBusy(ring);
+        assertNotNull(first);
+        assertTrue(ring.shouldHoldBack());
+        assertTrue(ring.shouldHoldBack());
+        assertEquals(1, ring.getProducedCount());
+        assertSame(first, ring.poll());
+        assertNotNull(produceWhileBusy(ring));
+        assertEquals(0, ring.getDroppedCount());
+        assertEquals(2, ring.getBlockedCount());
+    }
+
+    @Test
+    public void clearAndShrinkReleaseFrames() {
+        FrameRing ring = new FrameRing();
+        ring.configure(3, FrameRing.DropPolicy.NEWEST_WINS);
+        produceWhileBusy(ring);
+        produceWhileBusy(ring);
+        PreviewFrame third = produceWhileBusy(ring);
+        ring.configure(1, FrameRing.DropPolicy.NEWEST_WINS);
+        // Oldest first, the newest frame stays.
+        assertEquals(1, ring.size());
+        assertEquals(2, ring.getDroppedCount());
+        assertSame(third, ring.poll());
+        ring.offer(third);
+        ring.clear();
+        assertEquals(0, ring.size());
+        assertEquals(3, ring.getDroppedCount());
+        assertEquals(1, ring.getDecodedCount());
+        assertNull(ring.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCapacity() {
+        new FrameRing().configure(-1, FrameRing.DropPolicy.BLOCK);
+    }
+}
@@ -0,0 +1,69 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class FrameRotatorTest {
+
+    // Large enough to be split across the pool, and not a multiple of the tile.
+    private static final int WIDTH = 1031;
+    private static final int HEIGHT = 777;
+
+    private static byte[] frame() {
+        byte[] data = new byte[WIDTH * HEIGHT];
+        new Random(5).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * Rotates pixel by pixel through the row mapping of {@link RotatedLuminanceSource}.
+     */
+    private static byte[] expected(byte[] data, int left, int top, int width, int height,
+                                   int rotation) {
+        RotatedLuminanceSource source = new RotatedLuminanceSource(data, WIDTH, HEIGHT, left, top,
+                width, height, rotation);
+        byte[] expected = new byte[width * height];
+        for (int y = 0; y < source.getHeight(); y++) {
+            System.arraycopy(source.getRow(y, null), 0, expected, y * source.getWidth(),
+                    source.getWidth());
+        }
+        return expected;
+    }
+
+    @Test
+    public void matchesRowMappingForEveryRotation() {
+        byte[] data = frame();
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int rotation = 0; rotation < 360; rotation += 90) {
+                // Whole frame, split across the pool.
+                assertArrayEquals("rotation " + rotation, expected(data, 0, 0, WIDTH, HEIGHT, rotation),
+                        FrameRotator.rotate(data, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, rotation));
+                // A crop off the tile grid, on the calling thread.
+                byte[] crop = new byte[301 * 130];
+                FrameRotator.rotate(data, WIDTH, HEIGHT, 17, 33, 301, 130, rotation, crop, null);
+                assertArrayEquals("rotation " + rotation, expected(data, 17, 33, 301, 130, rotation), crop);
+                crop = new byte[WIDTH * HEIGHT];
+                FrameRotator.rotate(data, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, rotation, crop, pool);
+                assertArrayEquals(expected(data, 0, 0, WIDTH, HEIGHT, rotation), crop);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(WIDTH * HEIGHT >= FrameRotator.PARALLEL_THRESHOLD);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddRotation() {
+        FrameRotator.rotate(new byte[16], 4, 4, 0, 0, 4, 4, 45);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCropOutsideFrame() {
+        FrameRotator.rotate(new byte[16], 4, 4, 1, 0, 4, 4, 90);
+    }
+}
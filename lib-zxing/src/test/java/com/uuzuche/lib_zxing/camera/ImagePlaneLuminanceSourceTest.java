@@ -0,0 +1,90 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ImagePlaneLuminanceSourceTest {
+
+    private static final int WIDTH = 12;
+    private static final int HEIGHT = 9;
+
+    private final byte[] pixels = randomPixels();
+
+    private static byte[] randomPixels() {
+        byte[] pixels = new byte[WIDTH * HEIGHT];
+        new Random(7).nextBytes(pixels);
+        return pixels;
+    }
+
+    /**
+     * The pixels laid out like a camera plane: padded rows, interleaved samples, last row
+     * unpadded.
+     */
+    private ByteBuffer plane(int rowStride, int pixelStride, boolean direct) {
+        int size = (HEIGHT - 1) * rowStride + (WIDTH - 1) * pixelStride + 1;
+        ByteBuffer plane = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                plane.put(y * rowStride + x * pixelStride, pixels[y * WIDTH + x]);
+            }
+        }
+        return plane;
+    }
+
+    private static void assertSameLuminance(LuminanceSource expected, LuminanceSource actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertArrayEquals(expected.getMatrix(), actual.getMatrix());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            assertArrayEquals(expected.getRow(y, null), actual.getRow(y, null));
+        }
+    }
+
+    @Test
+    public void matchesHeapSourceForEveryRotation() {
+        ByteBuffer plane = plane(16, 1, true);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            assertSameLuminance(
+                    new RotatedLuminanceSource(pixels, WIDTH, HEIGHT, 2, 1, 7, 6, rotation),
+                    new ImagePlaneLuminanceSource(plane, 16, 1, 2, 1, 7, 6, rotation));
+        }
+    }
+
+    @Test
+    public void honoursPixelStride() {
+        ByteBuffer plane = plane(30, 2, false);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            assertSameLuminance(
+                    new RotatedLuminanceSource(pixels, WIDTH, HEIGHT, 1, 2, 10, 5, rotation),
+                    new ImagePlaneLuminanceSource(plane, 30, 2, 1, 2, 10, 5, rotation));
+        }
+    }
+
+    @Test
+    public void cropAndRotateMatchHeapSource() {
+        ByteBuffer plane = plane(16, 1, true);
+        RotatedLuminanceSource heap = new RotatedLuminanceSource(pixels, WIDTH, HEIGHT, 1, 1, 10, 7, 90);
+        ImagePlaneLuminanceSource direct = new ImagePlaneLuminanceSource(plane, 16, 1, 1, 1, 10, 7, 90);
+        assertSameLuminance(heap.crop(2, 3, 4, 5), direct.crop(2, 3, 4, 5));
+        assertSameLuminance(heap.rotateCounterClockwise(), direct.rotateCounterClockwise());
+    }
+
+    @Test
+    public void leavesCallerBufferUntouched() {
+        ByteBuffer plane = plane(16, 1, true);
+        plane.position(5);
+        new ImagePlaneLuminanceSource(plane, 16, 1, 0, 0, WIDTH, HEIGHT, 0).getMatrix();
+        assertEquals(5, plane.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCropOutsidePlane() {
+        new ImagePlaneLuminanceSource(plane(16, 1, true), 16, 1, 4, 0, WIDTH, HEIGHT, 0);
+    }
+}
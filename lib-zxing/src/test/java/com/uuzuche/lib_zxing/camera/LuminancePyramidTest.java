@@ -0,0 +1,44 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LuminancePyramidTest {
+
+    @Test
+    public void halveAveragesBlocks() {
+        byte[] data = {
+                0, 4, 8, 8, 1,
+                4, 0, 8, 8, 1,
+                (byte) 200, (byte) 200, 1, 3, 1,
+        };
+        byte[] half = LuminancePyramid.halve(data, 5, 3);
+        assertArrayEquals(new byte[]{2, 8}, half);
+    }
+
+    @Test
+    public void eachLevelIsBuiltFromThePreviousOne() {
+        byte[] data = new byte[512 * 256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 512 / 2);
+        }
+        RotatedLuminanceSource base = new RotatedLuminanceSource(data, 512, 256, 0, 0, 512, 256, 0);
+        LuminancePyramid pyramid = new LuminancePyramid(base, 3);
+        assertEquals(3, pyramid.getLevelCount());
+        assertEquals(128, pyramid.getLevel(2).getWidth());
+        assertEquals(64, pyramid.getLevel(2).getHeight());
+        assertArrayEquals(
+                LuminancePyramid.halve(pyramid.getLevel(1).getMatrix(), 256, 128),
+                pyramid.getLevel(2).getMatrix());
+        // Level 0 now reads the matrix kept while building level 1.
+        assertArrayEquals(data, pyramid.getLevel(0).getMatrix());
+    }
+
+    @Test
+    public void levelsTooSmallForACodeAreDropped() {
+        RotatedLuminanceSource base = new RotatedLuminanceSource(new byte[200 * 200], 200, 200,
+                0, 0, 200, 200, 0);
+        assertEquals(2, new LuminancePyramid(base, 4).getLevelCount());
+    }
+}
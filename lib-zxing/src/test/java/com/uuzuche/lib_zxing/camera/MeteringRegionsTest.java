@@ -0,0 +1,58 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MeteringRegionsTest {
+
+    @Test
+    public void sameAspectScalesOnly() {
+        int[] region = MeteringRegions.toActiveArray(new int[]{320, 240, 960, 720},
+                1280, 960, 4000, 3000);
+        assertArrayEquals(new int[]{1000, 750, 3000, 2250}, region);
+    }
+
+    @Test
+    public void widerFramesSeeTheMiddleBandOfTheSensor() {
+        // 16:9 frames of a 4:3 sensor: 378 rows are cut at the top and at the bottom.
+        assertArrayEquals(new int[]{0, 378, 4032, 2646},
+                MeteringRegions.visibleCrop(1920, 1080, 4032, 3024));
+        assertArrayEquals(new int[]{0, 378, 4032, 2646}, MeteringRegions.toActiveArray(
+                new int[]{0, 0, 1920, 1080}, 1920, 1080, 4032, 3024));
+        assertArrayEquals(new int[]{1008, 945, 3024, 2079}, MeteringRegions.toActiveArray(
+                new int[]{480, 270, 1440, 810}, 1920, 1080, 4032, 3024));
+    }
+
+    @Test
+    public void narrowerFramesSeeTheMiddleOfTheSensor() {
+        assertArrayEquals(new int[]{500, 0, 3500, 3000},
+                MeteringRegions.visibleCrop(1080, 1080, 4000, 3000));
+        assertArrayEquals(new int[]{500, 0, 2000, 1500}, MeteringRegions.toActiveArray(
+                new int[]{0, 0, 540, 540}, 1080, 1080, 4000, 3000));
+    }
+
+    @Test
+    public void tinyRegionsGrowAroundTheirCenter() {
+        int[] region = MeteringRegions.toActiveArray(new int[]{640, 480, 641, 481},
+                1280, 960, 4000, 3000);
+        assertEquals(150, region[2] - region[0]);
+        assertEquals(150, region[3] - region[1]);
+        assertTrue(region[0] < 2000 && region[2] > 2003);
+        assertTrue(region[1] < 1500 && region[3] > 1503);
+    }
+
+    @Test
+    public void regionsAtTheEdgeStayOnTheSensor() {
+        // A tap in the corner.
+        int[] region = MeteringRegions.around(0, 0, 100, 1280, 960, 4000, 3000);
+        assertArrayEquals(new int[]{0, 0, 312, 312}, region);
+        region = MeteringRegions.around(1280, 960, 100, 1280, 960, 4000, 3000);
+        assertArrayEquals(new int[]{3688, 2688, 4000, 3000}, region);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptySizes() {
+        MeteringRegions.toActiveArray(new int[]{0, 0, 1, 1}, 0, 960, 4000, 3000);
+    }
+}
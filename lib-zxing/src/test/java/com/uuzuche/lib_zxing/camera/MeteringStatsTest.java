@@ -0,0 +1,29 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MeteringStatsTest {
+
+    @Test
+    public void countsEachModeApart() {
+        MeteringStats stats = new MeteringStats();
+        stats.onScanStarted(true);
+        stats.onScanDecoded(true, 200000000L);
+        stats.onScanStarted(true);
+        stats.onScanDecoded(true, 400000000L);
+        stats.onScanStarted(false);
+        stats.onScanStarted(false);
+        stats.onScanDecoded(false, 900000000L);
+        assertEquals(1.0, stats.getSuccessRate(true), 1e-9);
+        assertEquals(300.0, stats.getAverageTimeToDecodeMillis(true), 1e-9);
+        assertEquals(0.5, stats.getSuccessRate(false), 1e-9);
+        assertEquals(900.0, stats.getAverageTimeToDecodeMillis(false), 1e-9);
+        assertEquals("MeteringStats{framingRect=2/2 scans, 300.0 ms, fullFrame=1/2 scans, 900.0 ms}",
+                stats.toString());
+        stats.reset();
+        assertEquals(0, stats.getScanCount(true));
+        assertEquals(0, stats.getSuccessRate(false), 0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.uuzuche.lib_zxing.camera;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RotatedLuminanceSourceTest {
+
+    private static final int WIDTH = 13;
+    private static final int HEIGHT = 7;
+
+    private static byte[] frame() {
+        byte[] data = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        return data;
+    }
+
+    /**
+     * The copy DecodeHandler used to make before building the source.
+     */
+    private static byte[] rotateClockwise(byte[] data, int width, int height) {
+        byte[] rotated = new byte[data.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                rotated[x * height + height - y - 1] = data[x + y * width];
+            }
+        }
+        return rotated;
+    }
+
+    private static void assertSameLuminance(LuminanceSource expected, LuminanceSource actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertArrayEquals(expected.getMatrix(), actual.getMatrix());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            assertArrayEquals(expected.getRow(y, null), actual.getRow(y, null));
+        }
+    }
+
+    @Test
+    public void matchesRotatedCopyForEveryRotation() {
+        byte[] data = frame();
+        byte[] rotated = data;
+        int width = WIDTH;
+        int height = HEIGHT;
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            LuminanceSource expected = new PlanarYUVLuminanceSource(rotated, width, height, 0, 0, width, height);
+            assertSameLuminance(expected,
+                    new RotatedLuminanceSource(data, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, rotation));
+            rotated = rotateClockwise(rotated, width, height);
+            int tmp = width;
+            width = height;
+            height = tmp;
+        }
+    }
+
+    @Test
+    public void cropIsInRotatedCoordinates() {
+        byte[] data = frame();
+        byte[] rotated = rotateClockwise(data, WIDTH, HEIGHT);
+        LuminanceSource expected = new PlanarYUVLuminanceSource(rotated, HEIGHT, WIDTH, 2, 3, 4, 6);
+        RotatedLuminanceSource full = new RotatedLuminanceSource(data, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 90);
+        assertSameLuminance(expected, full.crop(2, 3, 4, 6));
+        // Cropping twice composes.
+        assertSameLuminance(new PlanarYUVLuminanceSource(rotated, HEIGHT, WIDTH, 3, 4, 2, 3),
+                full.crop(2, 3, 4, 6).crop(1, 1, 2, 3));
+    }
+
+    @Test
+    public void cropComposesForEveryRotation() {
+        byte[] data = frame();
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            RotatedLuminanceSource source = new RotatedLuminanceSource(data, WIDTH, HEIGHT, 1, 2, 10, 5, rotation);
+            LuminanceSource copy = new PlanarYUVLuminanceSource(source.getMatrix(),
+                    source.getWidth(), source.getHeight(), 1, 2, 2, 3);
+            assertSameLuminance(copy, source.crop(1, 2, 2, 3));
+        }
+    }
+
+    @Test
+    public void rotateCounterClockwiseUndoesClockwise() {
+        byte[] data = frame();
+        RotatedLuminanceSource source = new RotatedLuminanceSource(data, WIDTH, HEIGHT, 1, 1, 8, 5, 90);
+        assertSameLuminance(new RotatedLuminanceSource(data, WIDTH, HEIGHT, 1, 1, 8, 5, 0),
+                source.rotateCounterClockwise());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCropOutsideFrame() {
+        new RotatedLuminanceSource(frame(), WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, 90).crop(0, 0, WIDTH, HEIGHT);
+    }
+}
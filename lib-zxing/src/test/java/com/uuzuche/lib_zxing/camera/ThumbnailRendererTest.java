@@ -0,0 +1,39 @@
+package com.uuzuche.lib_zxing.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThumbnailRendererTest {
+
+    /**
+     * A 5x3 frame where pixel (x, y) has value {@code y * 16 + x}.
+     */
+    private static RotatedLuminanceSource source() {
+        byte[] pixels = new byte[15];
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 5; x++) {
+                pixels[y * 5 + x] = (byte) (y * 16 + x);
+            }
+        }
+        return new RotatedLuminanceSource(pixels, 5, 3, 0, 0, 5, 3, 0);
+    }
+
+    @Test
+    public void fullSizeKeepsEveryPixel() {
+        RotatedLuminanceSource source = source();
+        assertArrayEquals(source.getMatrix(), ThumbnailRenderer.downscale(source, 1));
+    }
+
+    @Test
+    public void downscaleSamplesEveryNthPixel() {
+        byte[] expected = {0, 2, 4, 32, 34, 36};
+        assertArrayEquals(expected, ThumbnailRenderer.downscale(source(), 2));
+    }
+
+    @Test
+    public void scaledSizeRoundsUpAndNeverReachesZero() {
+        assertEquals(3, ThumbnailRenderer.scaledSize(5, 2));
+        assertEquals(1, ThumbnailRenderer.scaledSize(3, 8));
+    }
+}
@@ -0,0 +1,488 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.FrameRotator;
+import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decode benchmarks over a fixed set of synthetic frames. The numbers go into the assertion
+ * messages; the assertions guard correctness and only coarse comparisons, so the suite stays
+ * stable on slow build machines.
+ */
+public class DecodeBenchmarkTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROUNDS = 20;
+
+    static List<byte[]> recordedFrames() {
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (int i = 0; i < 4; i++) {
+            frames.add(SyntheticFrames.centred("https://example.com/item/" + i,
+                    BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 6, i));
+        }
+        frames.add(SyntheticFrames.centred("CODE128-0042", BarcodeFormat.CODE_128, WIDTH, HEIGHT, 3, 7));
+        // Frames without a code cost the most, they run every reader to the end.
+        for (int i = 0; i < 3; i++) {
+            frames.add(SyntheticFrames.render(SyntheticFrames.encode("x", BarcodeFormat.QR_CODE),
+                    WIDTH, HEIGHT, WIDTH, HEIGHT, 1, 12, 100 + i));
+        }
+        return frames;
+    }
+
+    /**
+     * A Code 128 label near the top edge, above the rows a 1D reader scans without
+     * {@code TRY_HARDER}.
+     */
+    static byte[] tryHarderFrame() {
+        return SyntheticFrames.render(SyntheticFrames.encode("CODE128-0042", BarcodeFormat.CODE_128),
+                WIDTH, HEIGHT, 100, 10, 3, 12, 7);
+    }
+
+    static Hashtable<DecodeHintType, Object> allFormats() {
+        Vector<BarcodeFormat> formats = new Vector<BarcodeFormat>();
+        formats.addAll(DecodeFormatManager.ONE_D_FORMATS);
+        formats.addAll(DecodeFormatManager.QR_CODE_FORMATS);
+        formats.addAll(DecodeFormatManager.DATA_MATRIX_FORMATS);
+        Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>();
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, formats);
+        return hints;
+    }
+
+    static PlanarYUVLuminanceSource source(byte[] frame) {
+        return new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void workerPoolThroughput() throws Exception {
+        final List<byte[]> frames = recordedFrames();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int workers = 1; workers <= Math.max(2, Math.min(4, cores)); workers *= 2) {
+            final DecodeStats[] stats = new DecodeStats[workers];
+            final AtomicInteger next = new AtomicInteger();
+            final AtomicInteger found = new AtomicInteger();
+            final int total = frames.size() * ROUNDS;
+            Thread[] threads = new Thread[workers];
+            for (int i = 0; i < workers; i++) {
+                stats[i] = new DecodeStats();
+                final FrameDecoder decoder = new FrameDecoder(allFormats(), new DecodeConfig(),
+                        null, null, null, stats[i]);
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        int frame;
+                        while ((frame = next.getAndIncrement()) < total) {
+                            Result result = decoder.decode(source(frames.get(frame % frames.size())));
+                            if (result != null) {
+                                found.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double wallSeconds = (System.nanoTime() - start) / 1e9;
+            StringBuilder summary = new StringBuilder(String.format(Locale.US,
+                    "workers=%d wall=%.1f fps", workers, total / wallSeconds));
+            for (int i = 0; i < workers; i++) {
+                summary.append(", worker ").append(i).append(' ').append(stats[i]);
+            }
+            assertEquals(summary.toString(), 5 * ROUNDS, found.get());
+        }
+    }
+
+    /**
+     * Each frame is held still for as many frames as the cascade needs to reach its last tier,
+     * as when the phone is pointed at a code, and counts as found once a decode succeeds. The
+     * cascade must find everything a single pass does, and more where only its last tier can.
+     */
+    @Test
+    public void cascadeVersusSinglePass() {
+        List<byte[]> frames = recordedFrames();
+        frames.add(tryHarderFrame());
+        DecodeCascade[] cascades = {DecodeCascade.singlePass(), DecodeCascade.qrFirst()};
+        int[] found = new int[cascades.length];
+        DecodeStats[] stats = new DecodeStats[cascades.length];
+        for (int c = 0; c < cascades.length; c++) {
+            DecodeCascade cascade = cascades[c];
+            DecodeConfig config = new DecodeConfig();
+            config.setCascade(cascade);
+            stats[c] = new DecodeStats(cascade.getTierCount());
+            FrameDecoder decoder = new FrameDecoder(allFormats(), config, null, null, null, stats[c]);
+            int holdFrames = cascade.getEscalateAfterMisses() * cascade.getTierCount();
+            for (int round = 0; round < ROUNDS / 4; round++) {
+                for (byte[] frame : frames) {
+                    for (int i = 0; i < holdFrames; i++) {
+                        if (decoder.decode(source(frame)) != null) {
+                            found[c]++;
+                            break;
+                        }
+                    }
+                }
+            }
+            for (int tier = 0; tier < cascade.getTierCount(); tier++) {
+                assertTrue("tier " + tier + " never ran: " + stats[c],
+                        stats[c].getTierAttempts(tier) > 0);
+            }
+        }
+        String summary = "single pass " + found[0] + " " + stats[0]
+                + ", cascade " + found[1] + " " + stats[1];
+        // 4 QR codes and the centred Code 128 in every round.
+        assertEquals(summary, 5 * (ROUNDS / 4), found[0]);
+        // The cascade also reads the label only its TRY_HARDER tier scans.
+        assertEquals(summary, 6 * (ROUNDS / 4), found[1]);
+        assertTrue(summary, stats[1].getTierHits(2) > 0);
+    }
+
+    /**
+     * A mostly-QR session with the odd Code 128, as seen by one worker. The prioritizer
+     * learns to try QR first and to skip the 1D reader on most frames.
+     */
+    @Test
+    public void prioritizedFormatsOnMixedCorpus() {
+        List<byte[]> corpus = new ArrayList<byte[]>();
+        for (int i = 0; i < 18; i++) {
+            corpus.add(SyntheticFrames.centred("QR-" + i, BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 6, i));
+        }
+        corpus.add(SyntheticFrames.centred("CODE128-0042", BarcodeFormat.CODE_128, WIDTH, HEIGHT, 3, 7));
+        corpus.add(SyntheticFrames.render(SyntheticFrames.encode("x", BarcodeFormat.QR_CODE),
+                WIDTH, HEIGHT, WIDTH, HEIGHT, 1, 12, 100));
+
+        FormatPrioritizer[] prioritizers = {null, new FormatPrioritizer()};
+        for (FormatPrioritizer prioritizer : prioritizers) {
+            DecodeStats stats = new DecodeStats();
+            FrameDecoder decoder = new FrameDecoder(allFormats(), new DecodeConfig(),
+                    prioritizer, null, null, stats);
+            int found = 0;
+            for (int round = 0; round < ROUNDS / 4; round++) {
+                for (byte[] frame : corpus) {
+                    if (decoder.decode(source(frame)) != null) {
+                        found++;
+                    }
+                }
+            }
+            String summary = (prioritizer == null ? "fixed order " : "prioritized ") + stats
+                    + (prioritizer != null ? " " + prioritizer : "");
+            // Every QR frame is found; Code 128 may wait for a re-probe once 1D is demoted.
+            assertTrue(summary, found >= 18 * (ROUNDS / 4));
+        }
+    }
+
+    /**
+     * 1080p crops with codes of different sizes. Large, close codes are found on the coarse
+     * levels; small ones fall through to full resolution.
+     */
+    @Test
+    public void pyramidLevels() {
+        int width = 1080;
+        int height = 1080;
+        List<byte[]> corpus = new ArrayList<byte[]>();
+        int[] modulePx = {24, 16, 8, 4};
+        for (int i = 0; i < modulePx.length; i++) {
+            corpus.add(SyntheticFrames.centred("https://example.com/p/" + i, BarcodeFormat.QR_CODE,
+                    width, height, modulePx[i], i));
+        }
+        for (int levels = 1; levels <= 3; levels++) {
+            DecodeConfig config = new DecodeConfig();
+            config.setPyramidLevels(levels);
+            DecodeStats stats = new DecodeStats(1, levels);
+            FrameDecoder decoder = new FrameDecoder(allFormats(), config, null, null, null, stats);
+            int found = 0;
+            for (int round = 0; round < 4; round++) {
+                for (byte[] frame : corpus) {
+                    if (decoder.decode(new PlanarYUVLuminanceSource(frame, width, height,
+                            0, 0, width, height)) != null) {
+                        found++;
+                    }
+                }
+            }
+            assertEquals("pyramid levels=" + levels + " " + stats, 4 * corpus.size(), found);
+        }
+    }
+
+    @Test
+    public void continuousScanCodesPerSecond() {
+        PlanarYUVLuminanceSource shelf = new PlanarYUVLuminanceSource(
+                MultiFrameDecoderTest.shelfFrame(), WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT);
+        DecodeStats stats = new DecodeStats();
+        MultiFrameDecoder decoder = new MultiFrameDecoder(allFormats(), new DecodeConfig(), stats);
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(3, decoder.decode(shelf).length);
+        }
+        assertEquals("continuous " + String.format(Locale.US, "%.1f", stats.getCodesPerSecond())
+                + " codes/s " + stats, 3 * ROUNDS, stats.getCodeCount());
+    }
+
+    /**
+     * Hands out its array as is, so getMatrix() allocates nothing.
+     */
+    private static final class ArraySource extends LuminanceSource {
+
+        private final byte[] matrix;
+
+        ArraySource(byte[] matrix) {
+            super(WIDTH, HEIGHT);
+            this.matrix = matrix;
+        }
+
+        @Override
+        public byte[] getRow(int y, byte[] row) {
+            if (row == null || row.length < WIDTH) {
+                row = new byte[WIDTH];
+            }
+            System.arraycopy(matrix, y * WIDTH, row, 0, WIDTH);
+            return row;
+        }
+
+        @Override
+        public byte[] getMatrix() {
+            return matrix;
+        }
+    }
+
+    @Test
+    public void binarizerAllocations() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+        List<ArraySource> sources = new ArrayList<ArraySource>();
+        for (byte[] frame : recordedFrames()) {
+            sources.add(new ArraySource(frame));
+        }
+        ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+        long[] bytesPerFrame = new long[2];
+        StringBuilder summary = new StringBuilder();
+        for (int reusable = 0; reusable < 2; reusable++) {
+            long bytes = 0;
+            long nanos = 0;
+            for (int i = 0; i < ROUNDS * 2; i++) {
+                for (ArraySource source : sources) {
+                    long startBytes = threads.getThreadAllocatedBytes(thread);
+                    long start = System.nanoTime();
+                    Binarizer binarizer = reusable == 1
+                            ? new ReusableHybridBinarizer(source, buffers)
+                            : new HybridBinarizer(source);
+                    binarizer.getBlackMatrix();
+                    nanos += System.nanoTime() - start;
+                    if (i >= ROUNDS) {
+                        // Measure warm runs only.
+                        bytes += threads.getThreadAllocatedBytes(thread) - startBytes;
+                    }
+                }
+            }
+            int frames = ROUNDS * sources.size();
+            bytesPerFrame[reusable] = bytes / frames;
+            summary.append(reusable == 1 ? ", reusable" : "hybrid").append(" binarizer ")
+                    .append(bytesPerFrame[reusable]).append(" bytes/frame, ")
+                    .append(String.format(Locale.US, "%.2f", nanos / 1e6 / (2 * frames)))
+                    .append(" ms/frame");
+        }
+        assertTrue(summary.toString(), buffers.getAllocationCount() <= 2);
+        assertTrue(summary.toString(), bytesPerFrame[1] < bytesPerFrame[0]);
+    }
+
+    /**
+     * QR codes under a steep light falloff with a specular highlight, as on glossy packaging.
+     */
+    static List<byte[]> unevenlyLitFrames() {
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (int i = 0; i < 8; i++) {
+            byte[] frame = SyntheticFrames.centred("https://example.com/gloss/" + i,
+                    BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 5, i);
+            int glareX = WIDTH / 3 + i * 20;
+            int glareY = HEIGHT / 2 - 40 + i * 10;
+            int falloff = 40 + i * 8;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int value = frame[y * WIDTH + x] & 0xFF;
+                    // Light drops to falloff percent on the right.
+                    value = value * (100 - (100 - falloff) * x / WIDTH) / 100;
+                    int dx = x - glareX;
+                    int dy = y - glareY;
+                    int glare = Math.max(0, 140 - (int) Math.sqrt(dx * dx + dy * dy) * 2);
+                    frame[y * WIDTH + x] = (byte) Math.min(255, value + glare);
+                }
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    /**
+     * Faint QR codes, as printed on thermal receipts or seen through a scratched window: dark
+     * modules only 15% darker than dim paper, with a gentle light falloff. Every 8x8
+     * block spans less than {@code HybridBinarizer}'s minimum dynamic range, so it takes them
+     * all for white.
+     */
+    static List<byte[]> lowContrastFrames() {
+        List<byte[]> frames = new ArrayList<byte[]>();
+        for (int i = 0; i < 8; i++) {
+            BitMatrix code = SyntheticFrames.encode("https://example.com/faint/" + i,
+                    BarcodeFormat.QR_CODE);
+            int modulePx = 5;
+            int left = (WIDTH - code.getWidth() * modulePx) / 2;
+            int top = (HEIGHT - code.getHeight() * modulePx) / 2;
+            byte[] frame = SyntheticFrames.render(code, WIDTH, HEIGHT, left, top, modulePx, 0, i);
+            Random random = new Random(i);
+            int paper = 116 + i * 3;
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    boolean dark = (frame[y * WIDTH + x] & 0xFF) < 128;
+                    // Light drops by a fifth across the frame.
+                    int light = paper - paper * x / (5 * WIDTH);
+                    int value = dark ? light * 85 / 100 : light;
+                    frame[y * WIDTH + x] = (byte) (value + random.nextInt(3) - 1);
+                }
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    @Test
+    public void binarizersOnUnevenLighting() throws Exception {
+        List<List<byte[]>> corpora = new ArrayList<List<byte[]>>();
+        corpora.add(recordedFrames());
+        corpora.add(unevenlyLitFrames());
+        corpora.add(lowContrastFrames());
+        String[] corpusNames = {"recorded", "uneven", "faint"};
+        String[] names = {"hybrid", "global", "integral"};
+        int[][] found = new int[corpora.size()][names.length];
+        StringBuilder summary = new StringBuilder();
+        for (int corpus = 0; corpus < corpora.size(); corpus++) {
+            for (int type = 0; type < names.length; type++) {
+                com.google.zxing.MultiFormatReader reader = new com.google.zxing.MultiFormatReader();
+                reader.setHints(allFormats());
+                IntegralImageBinarizer.Buffers buffers = new IntegralImageBinarizer.Buffers();
+                long nanos = 0;
+                int frames = 0;
+                for (int round = 0; round < ROUNDS / 4; round++) {
+                    for (byte[] frame : corpora.get(corpus)) {
+                        LuminanceSource source = source(frame);
+                        long start = System.nanoTime();
+                        Binarizer binarizer = type == 0 ? new HybridBinarizer(source)
+                                : type == 1 ? new com.google.zxing.common.GlobalHistogramBinarizer(source)
+                                : new IntegralImageBinarizer(source, 0,
+                                IntegralImageBinarizer.DEFAULT_THRESHOLD_PERCENT, buffers);
+                        try {
+                            reader.decodeWithState(new com.google.zxing.BinaryBitmap(binarizer));
+                            found[corpus][type]++;
+                        } catch (com.google.zxing.ReaderException e) {
+                            // Counted as a miss.
+                        } finally {
+                            reader.reset();
+                        }
+                        nanos += System.nanoTime() - start;
+                        frames++;
+                    }
+                }
+                summary.append(corpusNames[corpus]).append(' ').append(names[type])
+                        .append(" decoded ").append(found[corpus][type]).append('/').append(frames)
+                        .append(", ").append(String.format(Locale.US, "%.2f", nanos / 1e6 / frames))
+                        .append(" ms/frame; ");
+            }
+        }
+        // Faint codes are where the sliding window pays for itself.
+        assertEquals(summary.toString(), 0, found[2][0]);
+        assertTrue(summary.toString(), found[2][2] > found[2][0]);
+    }
+
+    @Test
+    public void inversionStrategies() {
+        // Normal frames first, then a run of light-on-dark codes as when a dark mode screen is
+        // scanned.
+        List<byte[]> frames = recordedFrames();
+        for (int i = 0; i < 8; i++) {
+            frames.add(InvertedBinarizerTest.invertedFrame("https://example.com/dark/" + i));
+        }
+        for (DecodeConfig.InversionStrategy strategy : DecodeConfig.InversionStrategy.values()) {
+            DecodeConfig config = new DecodeConfig();
+            config.setInversionStrategy(strategy);
+            DecodeStats stats = new DecodeStats();
+            FrameDecoder decoder = new FrameDecoder(allFormats(), config, null, null, null, stats);
+            for (int round = 0; round < ROUNDS / 4; round++) {
+                for (byte[] frame : frames) {
+                    decoder.decode(source(frame));
+                }
+            }
+            String summary = "inversion " + strategy + " inverted hit rate "
+                    + String.format(Locale.US, "%.2f", stats.getInvertedHitRate()) + " " + stats;
+            if (strategy == DecodeConfig.InversionStrategy.OFF) {
+                assertEquals(summary, 0, stats.getInvertedHitCount());
+            } else {
+                assertTrue(summary, stats.getInvertedHitCount() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void rotationKernels() {
+        // A 1080p preview frame, rotated to portrait as for a full size thumbnail.
+        int width = 1920;
+        int height = 1080;
+        byte[] frame = new byte[width * height];
+        new java.util.Random(11).nextBytes(frame);
+        byte[] reference = new byte[frame.length];
+        byte[] output = new byte[frame.length];
+        String[] names = {"pixel loop", "tiled", "tiled parallel"};
+        long[] nanos = new long[names.length];
+        for (int round = -5; round < ROUNDS; round++) {
+            for (int kernel = 0; kernel < names.length; kernel++) {
+                long start = System.nanoTime();
+                if (kernel == 0) {
+                    // The copy DecodeHandler used to make before building the source.
+                    for (int y = 0; y < height; y++) {
+                        for (int x = 0; x < width; x++) {
+                            reference[x * height + height - y - 1] = frame[x + y * width];
+                        }
+                    }
+                } else {
+                    FrameRotator.rotate(frame, width, height, 0, 0, width, height, 90, output,
+                            kernel == 2 ? FrameRotator.getDefaultPool() : null);
+                }
+                if (round >= 0) {
+                    // The first rounds only warm up the JIT.
+                    nanos[kernel] += System.nanoTime() - start;
+                }
+            }
+            assertArrayEquals(reference, output);
+        }
+        StringBuilder summary = new StringBuilder("rotate 90");
+        for (int kernel = 0; kernel < names.length; kernel++) {
+            summary.append(", ").append(names[kernel]).append(' ')
+                    .append(String.format(Locale.US, "%.2f", nanos[kernel] / 1e6 / ROUNDS))
+                    .append(" ms/frame");
+        }
+        // Generous, the tiled kernel is usually about twice as fast.
+        assertTrue(summary.toString(), nanos[1] < nanos[0] * 2);
+    }
+}
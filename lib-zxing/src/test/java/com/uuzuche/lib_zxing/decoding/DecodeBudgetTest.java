@@ -0,0 +1,111 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecodeBudgetTest {
+
+    /**
+     * A frame that takes 1 ms per row to read, like a pathological frame that keeps a reader
+     * busy far longer than usual.
+     */
+    private static LuminanceSource slowSource() {
+        final LuminanceSource source = DecodeBenchmarkTest.source(
+                SyntheticFrames.render(SyntheticFrames.encode("x", BarcodeFormat.QR_CODE),
+                        640, 480, 640, 480, 1, 12, 1));
+        return new LuminanceSource(source.getWidth(), source.getHeight()) {
+            @Override
+            public byte[] getRow(int y, byte[] row) {
+                sleep(1);
+                return source.getRow(y, row);
+            }
+
+            @Override
+            public byte[] getMatrix() {
+                sleep(source.getHeight());
+                return source.getMatrix();
+            }
+        };
+    }
+
+    private static DecodeConfig budget(long frameBudgetMillis) {
+        DecodeConfig config = new DecodeConfig();
+        config.setFrameBudgetMillis(frameBudgetMillis);
+        return config;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Test
+    public void overrunAbandonsFrame() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), budget(50),
+                null, null, null, stats);
+
+        assertNull(decoder.decode(slowSource()));
+        assertFalse(decoder.isLastDecodeComplete());
+        assertEquals(1, stats.getBudgetOverrunCount());
+        // Reading the matrix alone takes ~480 ms, the check after it gives up.
+        assertTrue(decoder.getLastDecodeNanos() < 2000 * 1000000L);
+    }
+
+    @Test
+    public void budgetDoesNotAffectNormalFrames() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), budget(10000),
+                null, null, null, stats);
+        byte[] frame = SyntheticFrames.centred("budget", BarcodeFormat.QR_CODE, 640, 480, 6, 1);
+        assertEquals("budget", decoder.decode(DecodeBenchmarkTest.source(frame)).getText());
+        assertTrue(decoder.isLastDecodeComplete());
+        assertEquals(0, stats.getBudgetOverrunCount());
+    }
+
+    @Test
+    public void cancelFromAnotherThread() throws Exception {
+        DecodeStats stats = new DecodeStats();
+        final FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(),
+                new DecodeConfig(), null, null, null, stats);
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(100);
+                decoder.cancel();
+            }
+        });
+        canceller.start();
+        assertNull(decoder.decode(slowSource()));
+        canceller.join();
+        assertEquals(1, stats.getCancelledCount());
+        assertEquals(0, stats.getBudgetOverrunCount());
+    }
+
+    @Test
+    public void cancelBeforeStartAbandonsNextFrame() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(),
+                new DecodeConfig(), null, null, null, stats);
+        byte[] frame = SyntheticFrames.centred("early", BarcodeFormat.QR_CODE, 640, 480, 6, 1);
+
+        decoder.cancel();
+        assertNull(decoder.decode(DecodeBenchmarkTest.source(frame)));
+        assertEquals(1, stats.getCancelledCount());
+        // The cancel is used up by the frame it abandoned.
+        assertEquals("early", decoder.decode(DecodeBenchmarkTest.source(frame)).getText());
+
+        decoder.cancel();
+        decoder.clearCancel();
+        assertEquals("early", decoder.decode(DecodeBenchmarkTest.source(frame)).getText());
+        assertEquals(1, stats.getCancelledCount());
+    }
+}
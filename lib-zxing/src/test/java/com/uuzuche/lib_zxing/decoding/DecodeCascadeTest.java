@@ -0,0 +1,118 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.DuplicateFrameFilter;
+import com.uuzuche.lib_zxing.camera.FrameExtractor;
+import com.uuzuche.lib_zxing.camera.FrameSignature;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Hashtable;
+
+import static org.junit.Assert.*;
+
+public class DecodeCascadeTest {
+
+    private static DecodeConfig qrFirst() {
+        DecodeConfig config = new DecodeConfig();
+        config.setCascade(DecodeCascade.qrFirst());
+        return config;
+    }
+
+    @Test
+    public void escalatesOneTierPerRunOfMisses() {
+        DecodeCascade cascade = DecodeCascade.qrFirst();
+        assertEquals(1, cascade.tiersToTry(0));
+        assertEquals(1, cascade.tiersToTry(2));
+        assertEquals(2, cascade.tiersToTry(3));
+        assertEquals(3, cascade.tiersToTry(6));
+        assertEquals(3, cascade.tiersToTry(100));
+    }
+
+    @Test
+    public void firstTierFindsQrAtHalfResolution() {
+        DecodeStats stats = new DecodeStats(3);
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), qrFirst(),
+                null, null, null, stats);
+        byte[] frame = SyntheticFrames.centred("cascade", BarcodeFormat.QR_CODE, 640, 480, 6, 1);
+
+        Result result = decoder.decode(DecodeBenchmarkTest.source(frame));
+        assertNotNull(result);
+        assertEquals("cascade", result.getText());
+        assertEquals(1, stats.getTierHits(0));
+        assertEquals(0, stats.getTierAttempts(1));
+        // Points are reported in full resolution coordinates.
+        for (ResultPoint point : result.getResultPoints()) {
+            assertTrue(point.getX() > 200 && point.getX() < 440);
+        }
+    }
+
+    @Test
+    public void laterTiersOnlyRunAfterMisses() {
+        DecodeStats stats = new DecodeStats(3);
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), qrFirst(),
+                null, null, null, stats);
+        byte[] code128 = SyntheticFrames.centred("CODE128-0042", BarcodeFormat.CODE_128, 640, 480, 3, 7);
+
+        // The QR tier cannot see a 1D code, so the first three frames miss.
+        for (int i = 0; i < 3; i++) {
+            assertNull(decoder.decode(DecodeBenchmarkTest.source(code128)));
+        }
+        Result result = decoder.decode(DecodeBenchmarkTest.source(code128));
+        assertNotNull(result);
+        assertEquals(4, stats.getTierAttempts(0));
+        assertEquals(1, stats.getTierHits(1));
+        assertEquals(0, stats.getTierAttempts(2));
+    }
+
+    @Test
+    public void tierWithoutEnabledFormatsIsSkipped() {
+        Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>();
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, DecodeFormatManager.ONE_D_FORMATS);
+        DecodeStats stats = new DecodeStats(3);
+        FrameDecoder decoder = new FrameDecoder(hints, qrFirst(), null, null, null, stats);
+        decoder.decode(DecodeBenchmarkTest.source(
+                SyntheticFrames.centred("x", BarcodeFormat.QR_CODE, 640, 480, 6, 1)));
+        assertEquals(0, stats.getTierAttempts(0));
+    }
+
+    /**
+     * A still scene the lower tiers cannot read must not be filtered as a duplicate before the
+     * cascade has escalated to the tier that can.
+     */
+    @Test
+    public void stillFrameReachesLastTierWithDuplicateFilter() {
+        byte[] frame = DecodeBenchmarkTest.tryHarderFrame();
+        FrameSignature signature = new FrameSignature();
+        FrameExtractor.extractLuma(ByteBuffer.wrap(frame), 640, 1, 0, 0, 640, 480,
+                new byte[frame.length], signature);
+        DuplicateFrameFilter filter = new DuplicateFrameFilter();
+        filter.setEnabled(true);
+        DecodeStats stats = new DecodeStats(3);
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), qrFirst(),
+                null, null, null, stats);
+
+        // What DecodeHandler does with each preview frame.
+        Result result = null;
+        int frames = 0;
+        while (result == null && frames++ < 10) {
+            if (filter.isDuplicate(signature)) {
+                continue;
+            }
+            result = decoder.decode(DecodeBenchmarkTest.source(frame));
+            if (result == null && decoder.isLastDecodeComplete()) {
+                filter.onDecodeFailed(signature);
+            }
+        }
+        assertNotNull(result);
+        assertEquals("CODE128-0042", result.getText());
+        assertEquals(0, stats.getTierHits(1));
+        assertEquals(1, stats.getTierHits(2));
+        assertEquals(0, filter.getSkippedCount());
+    }
+}
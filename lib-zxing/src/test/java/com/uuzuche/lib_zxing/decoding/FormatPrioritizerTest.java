@@ -0,0 +1,61 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FormatPrioritizerTest {
+
+    private static final FormatPrioritizer.Family[] ALL = FormatPrioritizer.Family.values();
+
+    @Test
+    public void keepsDefaultOrderWithoutHistory() {
+        FormatPrioritizer prioritizer = new FormatPrioritizer();
+        assertArrayEquals(ALL, prioritizer.nextOrder(ALL));
+    }
+
+    @Test
+    public void mostFrequentFamilyGoesFirst() {
+        FormatPrioritizer prioritizer = new FormatPrioritizer();
+        for (int i = 0; i < 5; i++) {
+            prioritizer.recordHit(BarcodeFormat.QR_CODE);
+        }
+        prioritizer.recordHit(BarcodeFormat.CODE_128);
+        FormatPrioritizer.Family[] order = prioritizer.nextOrder(ALL);
+        assertEquals(FormatPrioritizer.Family.QR_CODE, order[0]);
+        assertEquals(FormatPrioritizer.Family.ONE_D, order[1]);
+        assertEquals(ALL.length, order.length);
+    }
+
+    @Test
+    public void rareFamiliesAreDemotedAndReprobed() {
+        FormatPrioritizer prioritizer = new FormatPrioritizer();
+        for (int i = 0; i < 50; i++) {
+            prioritizer.recordHit(BarcodeFormat.CODE_128);
+        }
+        assertTrue(prioritizer.isDemoted(BarcodeFormat.QR_CODE));
+
+        int pruned = 0;
+        int full = 0;
+        for (int frame = 0; frame < FormatPrioritizer.REPROBE_INTERVAL; frame++) {
+            FormatPrioritizer.Family[] order = prioritizer.nextOrder(ALL);
+            assertEquals(FormatPrioritizer.Family.ONE_D, order[0]);
+            if (order.length == 1) {
+                pruned++;
+            } else {
+                full++;
+                assertTrue(Arrays.asList(order).contains(FormatPrioritizer.Family.QR_CODE));
+            }
+        }
+        assertEquals(1, full);
+        assertEquals(FormatPrioritizer.REPROBE_INTERVAL - 1, pruned);
+
+        // A demoted family that shows up again counts as a re-probe hit and climbs back.
+        prioritizer.recordHit(BarcodeFormat.QR_CODE);
+        assertEquals(1, prioritizer.getReprobeHitCount());
+    }
+}
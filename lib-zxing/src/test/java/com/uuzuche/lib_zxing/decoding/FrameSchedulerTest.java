@@ -0,0 +1,75 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+
+    private static final long MS = 1000000L;
+
+    private static FrameScheduler scheduler(FrameScheduler.Policy policy, float fps) {
+        DecodeConfig config = new DecodeConfig();
+        config.setSchedulerPolicy(policy);
+        config.setTargetFps(fps);
+        return new FrameScheduler(config);
+    }
+
+    @Test
+    public void maxThroughputNeverDelays() {
+        FrameScheduler scheduler = scheduler(FrameScheduler.Policy.MAX_THROUGHPUT, 10);
+        scheduler.onDecodeFinished(50 * MS);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, scheduler.nextRequestDelayNanos(i * MS));
+        }
+        assertEquals(0, scheduler.getStats(FrameScheduler.Policy.MAX_THROUGHPUT).getDelayedRequests());
+    }
+
+    @Test
+    public void fixedFpsSpacesSlotsAcrossWorkers() {
+        FrameScheduler scheduler = scheduler(FrameScheduler.Policy.FIXED_FPS, 10);
+        // Three workers asking at once get slots 100 ms apart.
+        assertEquals(0, scheduler.nextRequestDelayNanos(0));
+        assertEquals(100 * MS, scheduler.nextRequestDelayNanos(0));
+        assertEquals(200 * MS, scheduler.nextRequestDelayNanos(0));
+        // An idle period does not build up a burst of slots.
+        assertEquals(0, scheduler.nextRequestDelayNanos(1000 * MS));
+        assertEquals(100 * MS, scheduler.nextRequestDelayNanos(1000 * MS));
+    }
+
+    @Test
+    public void powerSaveFollowsMeasuredDecodeTime() {
+        FrameScheduler scheduler = scheduler(FrameScheduler.Policy.POWER_SAVE, 10);
+        for (int i = 0; i < 10; i++) {
+            scheduler.onFrameArrived(i * 33 * MS);
+        }
+        scheduler.onDecodeFinished(40 * MS);
+        assertEquals(40, scheduler.getAverageDecodeMillis(), 1e-9);
+        assertEquals(33, scheduler.getAverageFrameIntervalMillis(), 1e-9);
+        scheduler.nextRequestDelayNanos(0);
+        // 40 ms at a 25% duty cycle is slower than every other frame.
+        assertEquals(160 * MS, scheduler.nextRequestDelayNanos(0));
+    }
+
+    @Test
+    public void statsAreKeptPerPolicy() {
+        FrameScheduler scheduler = scheduler(FrameScheduler.Policy.MAX_THROUGHPUT, 10);
+        scheduler.onFrameArrived(0);
+        scheduler.onDecodeFinished(MS);
+        scheduler.setPolicy(FrameScheduler.Policy.FIXED_FPS, 5);
+        scheduler.onFrameArrived(33 * MS);
+        scheduler.onFrameArrived(66 * MS);
+
+        FrameScheduler.PolicyStats max = scheduler.getStats(FrameScheduler.Policy.MAX_THROUGHPUT);
+        FrameScheduler.PolicyStats fixed = scheduler.getStats(FrameScheduler.Policy.FIXED_FPS);
+        assertEquals(1, max.getFramesArrived());
+        assertEquals(1.0, max.getDecodeRatio(), 1e-9);
+        assertEquals(2, fixed.getFramesArrived());
+        assertEquals(0, fixed.getDecodes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void switchingToZeroFpsIsRejected() {
+        new FrameScheduler(new DecodeConfig()).setPolicy(FrameScheduler.Policy.FIXED_FPS, 0);
+    }
+}
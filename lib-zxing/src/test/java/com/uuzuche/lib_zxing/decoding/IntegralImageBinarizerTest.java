@@ -0,0 +1,126 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntegralImageBinarizerTest {
+
+    private static PlanarYUVLuminanceSource source(byte[] pixels, int width, int height) {
+        return new PlanarYUVLuminanceSource(pixels, width, height, 0, 0, width, height);
+    }
+
+    @Test
+    public void flatImageIsWhite() throws NotFoundException {
+        byte[] pixels = new byte[64 * 48];
+        java.util.Arrays.fill(pixels, (byte) 120);
+        BitMatrix matrix = new IntegralImageBinarizer(source(pixels, 64, 48)).getBlackMatrix();
+        assertNull(matrix.getTopLeftOnBit());
+    }
+
+    @Test
+    public void darkSquareUnderGradientIsBlack() throws NotFoundException {
+        int width = 96;
+        int height = 64;
+        byte[] pixels = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Light falls off from 250 to 90 across the image.
+                int light = 250 - x * 160 / width;
+                boolean dark = x >= 60 && x < 72 && y >= 20 && y < 32;
+                pixels[y * width + x] = (byte) (dark ? light / 3 : light);
+            }
+        }
+        BitMatrix matrix = new IntegralImageBinarizer(source(pixels, width, height), 24, 15)
+                .getBlackMatrix();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean dark = x >= 60 && x < 72 && y >= 20 && y < 32;
+                assertEquals("(" + x + ", " + y + ")", dark, matrix.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void matchesBruteForceWindowMean() throws NotFoundException {
+        int width = 53;
+        int height = 37;
+        int window = 9;
+        byte[] pixels = new byte[width * height];
+        new Random(7).nextBytes(pixels);
+        BitMatrix matrix = new IntegralImageBinarizer(source(pixels, width, height), window, 15)
+                .getBlackMatrix();
+        int half = window / 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long sum = 0;
+                int count = 0;
+                for (int yy = Math.max(0, y - half); yy <= Math.min(height - 1, y + half); yy++) {
+                    for (int xx = Math.max(0, x - half); xx <= Math.min(width - 1, x + half); xx++) {
+                        sum += pixels[yy * width + xx] & 0xFF;
+                        count++;
+                    }
+                }
+                long pixel = pixels[y * width + x] & 0xFF;
+                assertEquals(pixel * count * 100 <= sum * 85, matrix.get(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void blackRowUsesWindowAlongTheRow() throws NotFoundException {
+        int width = 40;
+        int window = 7;
+        byte[] pixels = new byte[width * 30];
+        new Random(3).nextBytes(pixels);
+        IntegralImageBinarizer binarizer =
+                new IntegralImageBinarizer(source(pixels, width, 30), window, 10);
+        BitArray row = binarizer.getBlackRow(12, null);
+        int half = window / 2;
+        for (int x = 0; x < width; x++) {
+            long sum = 0;
+            int count = 0;
+            for (int xx = Math.max(0, x - half); xx <= Math.min(width - 1, x + half); xx++) {
+                sum += pixels[12 * width + xx] & 0xFF;
+                count++;
+            }
+            long pixel = pixels[12 * width + x] & 0xFF;
+            assertEquals(pixel * count * 100 <= sum * 90, row.get(x));
+        }
+    }
+
+    @Test
+    public void blackRowIsMatrixRowOnceTheMatrixIsBuilt() throws NotFoundException {
+        byte[] pixels = new byte[40 * 30];
+        new Random(3).nextBytes(pixels);
+        IntegralImageBinarizer binarizer = new IntegralImageBinarizer(source(pixels, 40, 30));
+        BitArray expected = binarizer.getBlackMatrix().getRow(12, null);
+        assertEquals(expected.toString(), binarizer.getBlackRow(12, null).toString());
+    }
+
+    @Test
+    public void buffersAreReusedAcrossFrames() throws NotFoundException {
+        IntegralImageBinarizer.Buffers buffers = new IntegralImageBinarizer.Buffers();
+        Random random = new Random(5);
+        for (int i = 0; i < 4; i++) {
+            byte[] pixels = new byte[53 * 37];
+            random.nextBytes(pixels);
+            new IntegralImageBinarizer(source(pixels, 53, 37), 9, 15, buffers).getBlackMatrix();
+            new IntegralImageBinarizer(source(pixels, 53, 37), 9, 15, buffers).getBlackRow(3, null);
+        }
+        // A smaller frame fits in the same buffers, and leftovers do not leak into it.
+        byte[] pixels = new byte[40 * 30];
+        random.nextBytes(pixels);
+        BitMatrix reused = new IntegralImageBinarizer(source(pixels, 40, 30), 9, 15, buffers)
+                .getBlackMatrix();
+        assertEquals(new IntegralImageBinarizer(source(pixels, 40, 30), 9, 15).getBlackMatrix(), reused);
+        assertEquals(2, buffers.getAllocationCount());
+    }
+}
@@ -0,0 +1,121 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InvertedBinarizerTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    /**
+     * A light QR code on a dark background, as on a dark mode screen.
+     */
+    static byte[] invertedFrame(String text) {
+        byte[] frame = SyntheticFrames.centred(text, BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 6, 1);
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (255 - (frame[i] & 0xFF));
+        }
+        return frame;
+    }
+
+    private static FrameDecoder decoder(DecodeConfig.InversionStrategy strategy, DecodeStats stats) {
+        DecodeConfig config = new DecodeConfig();
+        config.setInversionStrategy(strategy);
+        config.setInversionAfterMisses(2);
+        return new FrameDecoder(DecodeBenchmarkTest.allFormats(), config, null, null, null, stats);
+    }
+
+    @Test
+    public void invertFlipsBitsAndKeepsPaddingClear() {
+        BitArray row = new BitArray(37);
+        row.set(0);
+        row.set(36);
+        InvertedBinarizer.invert(row);
+        assertFalse(row.get(0));
+        assertFalse(row.get(36));
+        for (int i = 1; i < 36; i++) {
+            assertTrue(row.get(i));
+        }
+        assertEquals(0, row.getBitArray()[1] >>> 5);
+    }
+
+    @Test
+    public void matrixIsNegativeOfTheOriginal() throws NotFoundException {
+        HybridBinarizer binarizer = new HybridBinarizer(
+                DecodeBenchmarkTest.source(invertedFrame("negative")));
+        BitMatrix original = binarizer.getBlackMatrix();
+        BitMatrix before = original.clone();
+        BitMatrix inverted = new InvertedBinarizer(binarizer).getBlackMatrix();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(!original.get(x, y), inverted.get(x, y));
+            }
+        }
+        // The normal attempt still sees its own matrix.
+        assertEquals(before, binarizer.getBlackMatrix());
+    }
+
+    @Test
+    public void offNeverDecodesInvertedCodes() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = decoder(DecodeConfig.InversionStrategy.OFF, stats);
+        for (int i = 0; i < 4; i++) {
+            assertNull(decoder.decode(DecodeBenchmarkTest.source(invertedFrame("dark mode"))));
+            assertTrue(decoder.isLastDecodeComplete());
+        }
+        assertEquals(0, stats.getInvertedAttemptCount());
+    }
+
+    @Test
+    public void alternateTriesEveryOtherFrame() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = decoder(DecodeConfig.InversionStrategy.ALTERNATE, stats);
+        assertNull(decoder.decode(DecodeBenchmarkTest.source(invertedFrame("dark mode"))));
+        // The inverted attempt is still to come, so the miss proves nothing about the scene.
+        assertFalse(decoder.isLastDecodeComplete());
+        Result result = decoder.decode(DecodeBenchmarkTest.source(invertedFrame("dark mode")));
+        assertNotNull(result);
+        assertEquals("dark mode", result.getText());
+        assertEquals(1, stats.getInvertedAttemptCount());
+        assertEquals(1, stats.getInvertedHitCount());
+    }
+
+    @Test
+    public void adaptiveStartsAfterMissesAndStaysInverted() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = decoder(DecodeConfig.InversionStrategy.ADAPTIVE, stats);
+        assertNull(decoder.decode(DecodeBenchmarkTest.source(invertedFrame("etched"))));
+        assertNull(decoder.decode(DecodeBenchmarkTest.source(invertedFrame("etched"))));
+        assertFalse(decoder.isLastDecodeComplete());
+        assertEquals(0, stats.getInvertedAttemptCount());
+        for (int i = 0; i < 3; i++) {
+            Result result = decoder.decode(DecodeBenchmarkTest.source(invertedFrame("etched")));
+            assertNotNull(result);
+            assertEquals("etched", result.getText());
+        }
+        // Once a code was found inverted, the inverted matrix is tried first and hits at once.
+        assertEquals(3, stats.getInvertedAttemptCount());
+        assertEquals(1.0, stats.getInvertedHitRate(), 0);
+    }
+
+    @Test
+    public void adaptiveLeavesNormalCodesAlone() {
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = decoder(DecodeConfig.InversionStrategy.ADAPTIVE, stats);
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(decoder.decode(DecodeBenchmarkTest.source(SyntheticFrames.centred(
+                    "light", BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 6, i))));
+        }
+        assertEquals(0, stats.getInvertedAttemptCount());
+    }
+}
@@ -0,0 +1,110 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitMatrix;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MultiFrameDecoderTest {
+
+    static final int WIDTH = 640;
+    static final int HEIGHT = 480;
+
+    /**
+     * Two QR codes next to each other above a Code 128 label.
+     */
+    static byte[] shelfFrame() {
+        byte[] frame = SyntheticFrames.render(
+                SyntheticFrames.encode("SKU-0001", BarcodeFormat.QR_CODE),
+                WIDTH, HEIGHT, 40, 40, 6, 12, 1);
+        paint(frame, SyntheticFrames.encode("SKU-0002", BarcodeFormat.QR_CODE), 380, 40, 6);
+        paint(frame, SyntheticFrames.encode("LOT-123456", BarcodeFormat.CODE_128), 120, 330, 3);
+        return frame;
+    }
+
+    private static void paint(byte[] frame, BitMatrix code, int left, int top, int modulePx) {
+        for (int y = 0; y < code.getHeight() * modulePx; y++) {
+            for (int x = 0; x < code.getWidth() * modulePx; x++) {
+                frame[(top + y) * WIDTH + left + x] = (byte) (code.get(x / modulePx, y / modulePx)
+                        ? SyntheticFrames.DARK : SyntheticFrames.LIGHT);
+            }
+        }
+    }
+
+    private static MultiFrameDecoder decoder(DecodeConfig config, DecodeStats stats) {
+        return new MultiFrameDecoder(DecodeBenchmarkTest.allFormats(), config, stats);
+    }
+
+    private static PlanarYUVLuminanceSource source(byte[] frame) {
+        return new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT);
+    }
+
+    private static void assertShelf(Result[] results) {
+        Set<String> texts = new HashSet<String>();
+        for (Result result : results) {
+            texts.add(result.getText());
+        }
+        assertEquals(3, results.length);
+        assertTrue(texts.contains("SKU-0001"));
+        assertTrue(texts.contains("SKU-0002"));
+        assertTrue(texts.contains("LOT-123456"));
+    }
+
+    @Test
+    public void findsEveryCodeInTheFrame() {
+        DecodeStats stats = new DecodeStats();
+        MultiFrameDecoder decoder = decoder(new DecodeConfig(), stats);
+        assertShelf(decoder.decode(source(shelfFrame())));
+        assertEquals(3, stats.getCodeCount());
+        assertEquals(1, stats.getSuccessCount());
+    }
+
+    @Test
+    public void emptyFrameFindsNothing() {
+        DecodeStats stats = new DecodeStats();
+        MultiFrameDecoder decoder = decoder(new DecodeConfig(), stats);
+        byte[] frame = SyntheticFrames.render(SyntheticFrames.encode("x", BarcodeFormat.QR_CODE),
+                WIDTH, HEIGHT, WIDTH, HEIGHT, 1, 12, 5);
+        assertEquals(0, decoder.decode(new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT,
+                0, 0, WIDTH, HEIGHT)).length);
+        assertEquals(1, stats.getFrameCount());
+        assertEquals(0, stats.getCodeCount());
+    }
+
+    @Test
+    public void usesTheConfiguredBinarizer() {
+        for (DecodeConfig.BinarizerType type : DecodeConfig.BinarizerType.values()) {
+            DecodeConfig config = new DecodeConfig();
+            config.setBinarizerType(type);
+            assertShelf(decoder(config, new DecodeStats()).decode(source(shelfFrame())));
+        }
+    }
+
+    @Test
+    public void adaptiveInversionFindsLightOnDarkCodes() {
+        byte[] frame = shelfFrame();
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (255 - (frame[i] & 0xFF));
+        }
+        DecodeConfig config = new DecodeConfig();
+        config.setInversionStrategy(DecodeConfig.InversionStrategy.ADAPTIVE);
+        config.setInversionAfterMisses(1);
+        DecodeStats stats = new DecodeStats();
+        MultiFrameDecoder decoder = decoder(config, stats);
+
+        assertEquals(0, decoder.decode(source(frame)).length);
+        // The inverted attempt is still to come.
+        assertFalse(decoder.isLastDecodeComplete());
+        assertShelf(decoder.decode(source(frame)));
+        assertTrue(decoder.isLastDecodeComplete());
+        assertEquals(1, stats.getInvertedHitCount());
+    }
+}
@@ -0,0 +1,122 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResultDeduplicatorTest {
+
+    private static final long MS = 1000000L;
+
+    private static ResultDeduplicator deduplicator(int capacity, ResultDeduplicator.Eviction eviction) {
+        return new ResultDeduplicator(capacity, 1000, eviction);
+    }
+
+    /**
+     * What a worker does with a result that reaches the callback.
+     *
+     * @return true if it was reported.
+     */
+    private static boolean report(ResultDeduplicator dedup, String text, long nowNanos) {
+        return report(dedup, BarcodeFormat.QR_CODE, text, nowNanos);
+    }
+
+    private static boolean report(ResultDeduplicator dedup, BarcodeFormat format, String text,
+                                  long nowNanos) {
+        if (dedup.isRepeat(format, text, nowNanos)) {
+            return false;
+        }
+        dedup.record(format, text, nowNanos);
+        return true;
+    }
+
+    @Test
+    public void repeatWithinTtlIsDropped() {
+        ResultDeduplicator dedup = deduplicator(8, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        assertTrue(report(dedup, "a", 0));
+        assertFalse(report(dedup, "a", 500 * MS));
+        // Each sighting extends the window.
+        assertFalse(report(dedup, "a", 1400 * MS));
+        assertEquals(3, dedup.getSightings(BarcodeFormat.QR_CODE, "a"));
+        assertEquals(2, dedup.getHitCount());
+        assertEquals(1, dedup.getMissCount());
+    }
+
+    @Test
+    public void reportedAgainAfterTtl() {
+        ResultDeduplicator dedup = deduplicator(8, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        assertTrue(report(dedup, "a", 0));
+        assertTrue(report(dedup, "a", 1001 * MS));
+        assertEquals(1, dedup.getExpiredCount());
+    }
+
+    @Test
+    public void formatIsPartOfTheKey() {
+        ResultDeduplicator dedup = deduplicator(8, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        assertTrue(report(dedup, "123", 0));
+        assertTrue(report(dedup, BarcodeFormat.CODE_128, "123", 0));
+    }
+
+    @Test
+    public void leastRecentlySeenKeepsCodesInView() {
+        ResultDeduplicator dedup = deduplicator(2, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        report(dedup, "a", 0);
+        report(dedup, "b", MS);
+        report(dedup, "a", 2 * MS);
+        report(dedup, "c", 3 * MS);
+        assertEquals(1, dedup.getEvictionCount());
+        assertFalse(report(dedup, "a", 4 * MS));
+        assertTrue(report(dedup, "b", 5 * MS));
+    }
+
+    @Test
+    public void firstSeenEvictsOldestReport() {
+        ResultDeduplicator dedup = deduplicator(2, ResultDeduplicator.Eviction.FIRST_SEEN);
+        report(dedup, "a", 0);
+        report(dedup, "b", MS);
+        report(dedup, "a", 2 * MS);
+        report(dedup, "c", 3 * MS);
+        assertTrue(report(dedup, "a", 4 * MS));
+    }
+
+    @Test
+    public void filterKeepsOnlyNewResults() {
+        ResultDeduplicator dedup = deduplicator(8, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        Result a = new Result("a", null, null, BarcodeFormat.QR_CODE);
+        Result b = new Result("b", null, null, BarcodeFormat.QR_CODE);
+        Result[] first = {a};
+        assertSame(first, dedup.filter(first));
+        dedup.record(first);
+        Result[] second = dedup.filter(new Result[]{a, b});
+        assertEquals(1, second.length);
+        assertSame(b, second[0]);
+        dedup.record(second);
+        assertEquals(0, dedup.filter(new Result[]{a, b}).length);
+    }
+
+    @Test
+    public void unreportedResultsAreNotHeldBack() {
+        ResultDeduplicator dedup = deduplicator(8, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+        // Seen on every frame, but the scan ended before it reached the callback.
+        for (int i = 0; i < 5; i++) {
+            assertFalse(dedup.isRepeat(BarcodeFormat.QR_CODE, "a", i * 500 * MS));
+        }
+        Result a = new Result("a", null, null, BarcodeFormat.QR_CODE);
+        assertEquals(1, dedup.filter(new Result[]{a}).length);
+        assertEquals(0, dedup.size());
+        assertEquals(0, dedup.getHitCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTtlIsRejected() {
+        new ResultDeduplicator(8, -1, ResultDeduplicator.Eviction.LEAST_RECENTLY_SEEN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingEvictionIsRejected() {
+        new ResultDeduplicator(8, 1000, null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReusableHybridBinarizerTest {
+
+    /**
+     * Frames of several sizes, including ones that are not a multiple of the block size, flat
+     * areas, noise and gradients.
+     */
+    static List<LuminanceSource> frames() {
+        List<LuminanceSource> frames = new ArrayList<LuminanceSource>();
+        int[][] sizes = {{640, 480}, {301, 203}, {640, 480}, {41, 57}, {160, 120}, {30, 30}};
+        for (int i = 0; i < sizes.length; i++) {
+            int width = sizes[i][0];
+            int height = sizes[i][1];
+            byte[] frame = SyntheticFrames.render(
+                    SyntheticFrames.encode("binarizer-" + i, BarcodeFormat.QR_CODE),
+                    width, height, width / 5, height / 6, Math.max(1, height / 80), 12 * (i % 3), i);
+            // Half of each frame fades from dark to light so blocks see every contrast.
+            Random random = new Random(i);
+            for (int y = height / 2; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    frame[y * width + x] = (byte) (x * 255 / width + random.nextInt(5));
+                }
+            }
+            frames.add(new PlanarYUVLuminanceSource(frame, width, height, 0, 0, width, height));
+        }
+        return frames;
+    }
+
+    @Test
+    public void matchesHybridBinarizer() throws NotFoundException {
+        ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+        // Twice, so the second pass runs on buffers dirtied by other frames.
+        for (int pass = 0; pass < 2; pass++) {
+            for (LuminanceSource source : frames()) {
+                BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+                BitMatrix actual = new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void reusesBuffersOnceWarm() throws NotFoundException {
+        ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+        LuminanceSource source = frames().get(0);
+        new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+        long allocations = buffers.getAllocationCount();
+        BitMatrix first = new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+        BitMatrix second = new ReusableHybridBinarizer(source, buffers).getBlackMatrix();
+        assertSame(first, second);
+        assertEquals(allocations, buffers.getAllocationCount());
+    }
+
+    @Test
+    public void cropsGetTheirOwnMatrix() throws NotFoundException {
+        ReusableHybridBinarizer.Buffers buffers = new ReusableHybridBinarizer.Buffers();
+        LuminanceSource source = frames().get(0);
+        ReusableHybridBinarizer binarizer = new ReusableHybridBinarizer(source, buffers);
+        BitMatrix parent = binarizer.getBlackMatrix();
+        BitMatrix crop = binarizer.createBinarizer(source.crop(0, 0, 320, 240)).getBlackMatrix();
+        assertNotSame(parent, crop);
+    }
+}
@@ -0,0 +1,111 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitMatrix;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.RotatedLuminanceSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoiTrackerTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private static RoiTracker.Bounds points(float... xy) {
+        RoiTracker.Bounds bounds = new RoiTracker.Bounds();
+        for (int i = 0; i < xy.length; i += 2) {
+            bounds.add(xy[i], xy[i + 1]);
+        }
+        return bounds;
+    }
+
+    private static int area(int[] region) {
+        return region == null ? WIDTH * HEIGHT : region[2] * region[3];
+    }
+
+    @Test
+    public void narrowsAroundPoints() {
+        RoiTracker tracker = new RoiTracker();
+        assertNull(tracker.getRegion(WIDTH, HEIGHT));
+        tracker.onFrameDecoded(points(100, 100, 200, 100, 100, 200), false, WIDTH, HEIGHT);
+        int[] region = tracker.getRegion(WIDTH, HEIGHT);
+        assertNotNull(region);
+        assertTrue(region[0] <= 100 && region[1] <= 100);
+        assertTrue(region[0] + region[2] >= 200 && region[1] + region[3] >= 200);
+        assertTrue(area(region) < WIDTH * HEIGHT / 4);
+    }
+
+    @Test
+    public void singlePointDoesNotNarrow() {
+        RoiTracker tracker = new RoiTracker();
+        tracker.onFrameDecoded(points(100, 100), false, WIDTH, HEIGHT);
+        assertNull(tracker.getRegion(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void widensAfterMissesUntilFullFrame() {
+        RoiTracker tracker = new RoiTracker();
+        tracker.onFrameDecoded(points(300, 220, 340, 260), false, WIDTH, HEIGHT);
+        int previous = area(tracker.getRegion(WIDTH, HEIGHT));
+        for (int i = 1; i < RoiTracker.MAX_MISSES; i++) {
+            tracker.onFrameDecoded(points(), false, WIDTH, HEIGHT);
+            int current = area(tracker.getRegion(WIDTH, HEIGHT));
+            assertTrue(current > previous);
+            previous = current;
+        }
+        tracker.onFrameDecoded(points(), false, WIDTH, HEIGHT);
+        assertNull(tracker.getRegion(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void clutterCannotKeepTheRegionNarrowed() {
+        RoiTracker tracker = new RoiTracker();
+        // Something in the background yields finder candidates on every frame, the code never
+        // decodes within the region.
+        for (int i = 0; i < RoiTracker.MAX_MISSES; i++) {
+            tracker.onFrameDecoded(points(40, 40, 90, 90), false, WIDTH, HEIGHT);
+            assertNotNull(tracker.getRegion(WIDTH, HEIGHT));
+        }
+        tracker.onFrameDecoded(points(40, 40, 90, 90), false, WIDTH, HEIGHT);
+        assertNull(tracker.getRegion(WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void resultEndsTracking() {
+        RoiTracker tracker = new RoiTracker();
+        tracker.onFrameDecoded(points(100, 100, 200, 200), false, WIDTH, HEIGHT);
+        tracker.onFrameDecoded(points(100, 100, 200, 200), true, WIDTH, HEIGHT);
+        assertFalse(tracker.isActive());
+    }
+
+    @Test
+    public void resultPointsStayInSourceCoordinates() {
+        BitMatrix code = SyntheticFrames.encode("https://example.com/roi", BarcodeFormat.QR_CODE);
+        int left = 360;
+        int top = 260;
+        int size = code.getWidth() * 4;
+        byte[] frame = SyntheticFrames.render(code, WIDTH, HEIGHT, left, top, 4, 12, 1);
+        RoiTracker tracker = new RoiTracker();
+        tracker.onFrameDecoded(points(left + 20, top + 20, left + size - 20, top + size - 20),
+                false, WIDTH, HEIGHT);
+        DecodeStats stats = new DecodeStats();
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), new DecodeConfig(),
+                null, null, tracker, stats);
+
+        Result result = decoder.decode(new RotatedLuminanceSource(frame, WIDTH, HEIGHT, 0, 0,
+                WIDTH, HEIGHT, 0));
+        assertNotNull(result);
+        assertEquals(1, stats.getRegionFrameCount());
+        assertEquals(1, stats.getRegionHitCount());
+        for (ResultPoint point : result.getResultPoints()) {
+            assertTrue(point.getX() > left && point.getX() < left + size);
+            assertTrue(point.getY() > top && point.getY() < top + size);
+        }
+        assertFalse(tracker.isActive());
+    }
+}
@@ -0,0 +1,108 @@
+package com.uuzuche.lib_zxing.decoding;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+import com.uuzuche.lib_zxing.SyntheticFrames;
+import com.uuzuche.lib_zxing.camera.PlanarYUVLuminanceSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SharpnessGateTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    private static byte[] sharpFrame() {
+        return SyntheticFrames.centred("sharp", BarcodeFormat.QR_CODE, WIDTH, HEIGHT, 5, 1);
+    }
+
+    /**
+     * Box blur of the given radius, like a frame taken out of focus.
+     */
+    private static byte[] blur(byte[] frame, int radius) {
+        byte[] blurred = new byte[frame.length];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int sum = 0;
+                int count = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int sx = x + dx;
+                        int sy = y + dy;
+                        if (sx >= 0 && sy >= 0 && sx < WIDTH && sy < HEIGHT) {
+                            sum += frame[sy * WIDTH + sx] & 0xff;
+                            count++;
+                        }
+                    }
+                }
+                blurred[y * WIDTH + x] = (byte) (sum / count);
+            }
+        }
+        return blurred;
+    }
+
+    private static LuminanceSource source(byte[] frame) {
+        return new PlanarYUVLuminanceSource(frame, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void blurLowersSharpness() {
+        byte[] sharp = sharpFrame();
+        double sharpness = SharpnessGate.measure(source(sharp));
+        double blurred = SharpnessGate.measure(source(blur(sharp, 3)));
+        assertTrue(sharpness + " vs " + blurred, sharpness > 3 * blurred);
+    }
+
+    @Test
+    public void skipsBlurredFramesAfterASharpOne() {
+        byte[] sharp = sharpFrame();
+        LuminanceSource blurred = source(blur(sharp, 3));
+        SharpnessGate gate = new SharpnessGate();
+        assertTrue(gate.accept(source(sharp)));
+        assertFalse(gate.accept(blurred));
+        assertTrue(gate.accept(source(sharp)));
+    }
+
+    @Test
+    public void neverSkipsTooManyFramesInARow() {
+        SharpnessGate gate = new SharpnessGate();
+        gate.accept(1000);
+        for (int i = 0; i < SharpnessGate.MAX_CONSECUTIVE_SKIPS; i++) {
+            assertFalse(gate.accept(10));
+        }
+        assertTrue(gate.accept(10));
+    }
+
+    @Test
+    public void thresholdAdaptsToABlurryScene() {
+        SharpnessGate gate = new SharpnessGate();
+        gate.accept(1000);
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (gate.accept(100)) {
+                accepted++;
+            }
+        }
+        // Once the old peak has decayed, every frame of the scene is accepted.
+        assertTrue(accepted > 70);
+    }
+
+    @Test
+    public void skippedFramesAreCounted() {
+        DecodeConfig config = new DecodeConfig();
+        DecodeStats stats = new DecodeStats();
+        SharpnessGate gate = new SharpnessGate();
+        FrameDecoder decoder = new FrameDecoder(DecodeBenchmarkTest.allFormats(), config, null, gate,
+                null, stats);
+        byte[] sharp = sharpFrame();
+        assertNotNull(decoder.decode(source(sharp)));
+        assertNull(decoder.decode(source(blur(sharp, 3))));
+        // A skipped frame must not become the duplicate reference.
+        assertFalse(decoder.isLastDecodeComplete());
+        assertEquals(1, stats.getSkippedCount());
+        assertEquals(1, stats.getFrameCount());
+        assertEquals(0.5, stats.getSkipRatio(), 1e-9);
+    }
+}